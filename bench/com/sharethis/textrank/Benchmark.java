@@ -0,0 +1,520 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import com.sharethis.common.IOUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.didion.jwnl.data.POS;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * Microbenchmark harness for the TextRank hot paths. Each case gets
+ * its own setup, a timed warmup so the JIT settles, then a timed
+ * measurement phase which records the latency of every operation.
+ *
+ * Tuned through system properties:
+ *   bench.warmup.ms   warmup time per case (default 2000)
+ *   bench.measure.ms  measurement time per case (default 5000)
+ *   bench.filter      regex selecting case names (default all)
+ *   bench.scale       comma-separated document scale factors (default 1,4)
+ *   bench.graph.size  comma-separated synthetic graph sizes (default 1000,10000,100000)
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    Benchmark
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(Benchmark.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static double SYNTHETIC_EDGES_PER_NODE = 3.0D;
+    public final static int SENTENCE_CACHE_SIZE = 100000;
+    public final static int TOP_K = 20;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected LanguageModel lang = null;
+    protected boolean use_wordnet = false;
+    protected long warmup_ms = 2000L;
+    protected long measure_ms = 5000L;
+    protected String filter = ".*";
+
+    // keep results reachable, so the JIT can't elide the work
+
+    protected volatile Object sink = null;
+
+
+    /**
+     * One benchmark case.
+     */
+
+    protected abstract static class
+	Case
+    {
+	public final String name;
+
+	public
+	    Case (final String name)
+	{
+	    this.name = name;
+	}
+
+	public abstract Object
+	    run ()
+	    throws Exception
+	    ;
+    }
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	Benchmark (final String res_path, final String lang_code)
+	throws Exception
+    {
+	lang = LanguageModel.buildLanguage(res_path, lang_code);
+	use_wordnet = "en".equals(lang_code);
+
+	if (use_wordnet) {
+	    WordNet.buildDictionary(res_path, lang_code);
+	}
+
+	warmup_ms = Long.getLong("bench.warmup.ms", warmup_ms);
+	measure_ms = Long.getLong("bench.measure.ms", measure_ms);
+	filter = System.getProperty("bench.filter", filter);
+    }
+
+
+    /**
+     * Run one case: warmup, then measure, then report.
+     */
+
+    public void
+	measure (final Case c)
+	throws Exception
+    {
+	if (!c.name.matches(filter)) {
+	    return;
+	}
+
+	// warmup
+
+	long deadline = System.currentTimeMillis() + warmup_ms;
+
+	while (System.currentTimeMillis() < deadline) {
+	    sink = c.run();
+	}
+
+	// measure
+
+	final ArrayList<Long> samples = new ArrayList<Long>();
+	deadline = System.currentTimeMillis() + measure_ms;
+
+	do {
+	    final long start = System.nanoTime();
+	    sink = c.run();
+	    samples.add(System.nanoTime() - start);
+	}
+	while (System.currentTimeMillis() < deadline);
+
+	report(c.name, samples);
+    }
+
+
+    /**
+     * Report latency statistics for a case, in microseconds.
+     */
+
+    protected void
+	report (final String name, final List<Long> samples)
+    {
+	final long[] sorted = new long[samples.size()];
+	double total = 0.0D;
+
+	for (int i = 0; i < sorted.length; i++) {
+	    sorted[i] = samples.get(i);
+	    total += sorted[i];
+	}
+
+	Arrays.sort(sorted);
+
+	final StringBuilder sb = new StringBuilder();
+
+	sb.append("BENCH:\t").append(name);
+	sb.append("\tops ").append(sorted.length);
+	sb.append("\tmean_us ").append(Math.round(total / sorted.length / 1000.0D));
+	sb.append("\tp50_us ").append(sorted[(int) (sorted.length * 0.50D)] / 1000L);
+	sb.append("\tp99_us ").append(sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99D))] / 1000L);
+	sb.append("\tops_per_sec ").append(Math.round(sorted.length / (total / 1.0e9D)));
+
+	LOG.info(sb.toString());
+    }
+
+
+    /**
+     * Reset the ranks, so each run iterates from the same start.
+     */
+
+    protected static void
+	resetRanks (final Graph graph)
+    {
+	for (Node n : graph.values()) {
+	    n.rank = 1.0D;
+	    n.marked = false;
+	}
+    }
+
+
+    /**
+     * Build the graph for a document, the way PASS 1 does.
+     */
+
+    protected Graph
+	buildGraph (final String text, final Cache cache)
+	throws Exception
+    {
+	final Graph graph = new Graph();
+
+	for (String sent_text : lang.splitParagraph(text)) {
+	    new Sentence(sent_text.trim()).mapTokens(lang, cache, graph);
+	}
+
+	return graph;
+    }
+
+
+    /**
+     * Build a synthetic random graph, with a skewed degree
+     * distribution like a word co-occurrence graph.
+     */
+
+    protected static Graph
+	buildSyntheticGraph (final int size)
+	throws Exception
+    {
+	final Random random = new Random(size);
+	final Graph graph = new Graph();
+	final Node[] node_list = new Node[size];
+
+	for (int i = 0; i < size; i++) {
+	    final String key = "NN" + i;
+	    node_list[i] = Node.buildNode(graph, key, new KeyWord(key, "NN"));
+	}
+
+	final long num_edges = Math.round(size * SYNTHETIC_EDGES_PER_NODE);
+
+	for (long i = 0; i < num_edges; i++) {
+	    final int a = (int) (size * Math.pow(random.nextDouble(), 2.0D));
+	    final int b = random.nextInt(size);
+
+	    if (a != b) {
+		node_list[a].connect(node_list[b]);
+	    }
+	}
+
+	return graph;
+    }
+
+
+    /**
+     * Register and run all of the cases for a document.
+     */
+
+    public void
+	runDocument (final String label, final String text)
+	throws Exception
+    {
+	final String[] sent_list = lang.splitParagraph(text);
+	final List<String[]> token_lists = new ArrayList<String[]>();
+
+	for (String sent_text : sent_list) {
+	    token_lists.add(lang.tokenizeSentence(sent_text.trim()));
+	}
+
+	measure(new Case("tokenizeSentence[" + label + "]") {
+		public Object run () {
+		    int count = 0;
+
+		    for (String sent_text : sent_list) {
+			count += lang.tokenizeSentence(sent_text.trim()).length;
+		    }
+
+		    return count;
+		}
+	    });
+
+	measure(new Case("tagTokens[" + label + "]") {
+		public Object run () {
+		    int count = 0;
+
+		    for (String[] token_list : token_lists) {
+			count += lang.tagTokens(token_list).length;
+		    }
+
+		    return count;
+		}
+	    });
+
+	measure(new Case("mapTokens[" + label + "]") {
+		public Object run () throws Exception {
+		    return buildGraph(text, new Cache());
+		}
+	    });
+
+	final Cache cache = new Cache();
+	final Graph graph = buildGraph(text, cache);
+	final int max_results = (int) Math.round((double) graph.size() * Graph.KEYWORD_REDUCTION_FACTOR);
+
+	measure(new Case("runTextRank[" + label + "]") {
+		public Object run () throws Exception {
+		    resetRanks(graph);
+		    graph.runTextRank();
+		    return graph;
+		}
+	    });
+
+	measure(new Case("sortResults[" + label + "]") {
+		public Object run () {
+		    graph.sortResults(max_results);
+		    return graph;
+		}
+	    });
+
+	resetRanks(graph);
+	graph.runTextRank();
+	graph.sortResults(max_results);
+
+	final double rank_threshold = graph.getRankThreshold();
+
+	measure(new Case("collectNGrams[" + label + "]") {
+		public Object run () throws Exception {
+		    return NGram.collectNGrams(lang, cache, rank_threshold);
+		}
+	    });
+
+	if (use_wordnet) {
+	    measure(new Case("addKeyWord[" + label + "]") {
+		    public Object run () throws Exception {
+			final Graph synset_subgraph = new Graph();
+
+			for (Node n : graph.values()) {
+			    final KeyWord kw = (KeyWord) n.value;
+
+			    if (lang.isNoun(kw.pos)) {
+				SynsetLink.addKeyWord(synset_subgraph, n, kw.text, POS.NOUN);
+			    }
+			    else if (lang.isAdjective(kw.pos)) {
+				SynsetLink.addKeyWord(synset_subgraph, n, kw.text, POS.ADJECTIVE);
+			    }
+			}
+
+			// undo the links, so the document graph stays the same
+
+			for (Node n : synset_subgraph.values()) {
+			    n.disconnect(((SynsetLink) n.value).parent);
+			}
+
+			return synset_subgraph;
+		    }
+		});
+	}
+
+	measure(new Case("call[" + label + "]") {
+		public Object run () throws Exception {
+		    final TextRank tr = new TextRank(lang);
+
+		    tr.prepCall(text, use_wordnet);
+		    return tr.call();
+		}
+	    });
+
+	measure(new Case("callParallelSentences[" + label + "]") {
+		public Object run () throws Exception {
+		    final TextRank tr = new TextRank(lang);
+
+		    tr.setSentencePool(SentenceMapper.getSharedPool());
+		    tr.prepCall(text, use_wordnet);
+		    return tr.call();
+		}
+	    });
+
+	measure(new Case("callTopK[" + label + "]") {
+		public Object run () throws Exception {
+		    final TextRank tr = new TextRank(lang);
+
+		    tr.setTopK(TOP_K);
+		    tr.prepCall(text, use_wordnet);
+		    return tr.call();
+		}
+	    });
+
+	final SentenceCache sentence_cache = new SentenceCache(SENTENCE_CACHE_SIZE);
+
+	measure(new Case("callSentenceCache[" + label + "]") {
+		public Object run () throws Exception {
+		    final TextRank tr = new TextRank(lang);
+
+		    tr.setSentenceCache(sentence_cache);
+		    tr.prepCall(text, use_wordnet);
+		    return tr.call();
+		}
+	    });
+    }
+
+
+    /**
+     * Register and run the cases for a synthetic graph.
+     */
+
+    public void
+	runSyntheticGraph (final int size)
+	throws Exception
+    {
+	final Graph graph = buildSyntheticGraph(size);
+	final int max_results = (int) Math.round((double) graph.size() * Graph.KEYWORD_REDUCTION_FACTOR);
+
+	LOG.info("GRAPH_MEMORY:\tsynthetic-" + size + "\t" + graph.memoryFootprint());
+
+	// compare the serial and parallel iterations at every size
+
+	graph.parallel_threshold = Integer.MAX_VALUE;
+
+	measure(new Case("runTextRank[synthetic-" + size + "]") {
+		public Object run () throws Exception {
+		    resetRanks(graph);
+		    graph.runTextRank();
+		    return graph;
+		}
+	    });
+
+	measure(new Case("runTextRankParallel[synthetic-" + size + "]") {
+		public Object run () throws Exception {
+		    resetRanks(graph);
+		    graph.parallel_threshold = 0;
+		    graph.runTextRank();
+		    graph.parallel_threshold = Integer.MAX_VALUE;
+		    return graph;
+		}
+	    });
+
+	measure(new Case("sortResults[synthetic-" + size + "]") {
+		public Object run () {
+		    graph.sortResults(max_results);
+		    return graph;
+		}
+	    });
+    }
+
+
+    /**
+     * Repeat a document to scale up its size.
+     */
+
+    protected static String
+	scaleText (final String text, final int scale)
+    {
+	final StringBuilder sb = new StringBuilder(text.length() * scale);
+
+	for (int i = 0; i < scale; i++) {
+	    sb.append(text).append('\n');
+	}
+
+	return sb.toString();
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // command line interface
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Main entry point.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final Benchmark bench = new Benchmark(res_path, lang_code);
+
+	// documents, at each scale factor
+
+	for (int i = 3; i < args.length; i++) {
+	    final String data_file = args[i];
+	    final String text = IOUtils.readFile(data_file);
+	    final String label = data_file.substring(data_file.lastIndexOf('/') + 1);
+
+	    for (String scale : System.getProperty("bench.scale", "1,4").split(",")) {
+		final int k = Integer.parseInt(scale.trim());
+
+		bench.runDocument(label + "x" + k, scaleText(text, k));
+	    }
+	}
+
+	// synthetic graphs
+
+	for (String size : System.getProperty("bench.graph.size", "1000,10000,100000").split(",")) {
+	    bench.runSyntheticGraph(Integer.parseInt(size.trim()));
+	}
+    }
+}
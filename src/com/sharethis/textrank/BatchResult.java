@@ -0,0 +1,174 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Implements the outcome of running TextRank on one document within
+ * a batch: either the ranked key phrases, or the error which stopped
+ * that document.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    BatchResult
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(BatchResult.class.getName());
+
+
+    /**
+     * Public members.
+     */
+
+    public long index = 0L;
+    public Collection<MetricVector> answer = null;
+    public int graph_size = 0;
+    public List<MetricVector> key_phrases = null;
+    public Throwable error = null;
+    public long elapsed_time = 0L;
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	BatchResult (final long index)
+    {
+	this.index = index;
+    }
+
+
+    /**
+     * Keep only what gets reported from a TextRank run, detached
+     * from its graph, so the graph, cache and n-grams can be
+     * collected while this result waits to be written.
+     */
+
+    public void
+	setAnswer (final TextRank text_rank, final Collection<MetricVector> answer)
+    {
+	this.answer = detach(answer);
+	this.graph_size = text_rank.getGraph().size();
+	this.key_phrases = detach(text_rank.getKeyPhrases());
+    }
+
+
+    /**
+     * Copy a list of metric vectors, detached from the graph.
+     */
+
+    protected static List<MetricVector>
+	detach (final Collection<MetricVector> list)
+    {
+	final List<MetricVector> copy = new ArrayList<MetricVector>(list.size());
+
+	for (MetricVector mv : list) {
+	    copy.add(mv.detach());
+	}
+
+	return copy;
+    }
+
+
+    /**
+     * Determine whether this document was processed successfully.
+     */
+
+    public boolean
+	isSuccess ()
+    {
+	return error == null;
+    }
+
+
+    /**
+     * Determine whether this document ran past its deadline.
+     */
+
+    public boolean
+	isTimeout ()
+    {
+	return error instanceof TextRankTimeoutException;
+    }
+
+
+    /**
+     * Serialize as one JSON object, with either the key phrases or
+     * the error.
+     */
+
+    public StringBuilder
+	renderJson (final StringBuilder sb, final String id)
+    {
+	sb.append("{\"index\":").append(index);
+	Json.quote(sb.append(",\"id\":"), id);
+	sb.append(",\"elapsed_ms\":").append(elapsed_time);
+
+	if (isSuccess()) {
+	    sb.append(",\"graph_size\":").append(graph_size);
+	    sb.append(",\"phrases\":[");
+
+	    boolean first = true;
+
+	    for (MetricVector mv : key_phrases) {
+		if (!first) {
+		    sb.append(',');
+		}
+
+		mv.renderJson(sb);
+		first = false;
+	    }
+
+	    sb.append(']');
+	}
+	else {
+	    Json.quote(sb.append(",\"error\":"), String.valueOf(error));
+	    sb.append(",\"timeout\":").append(isTimeout());
+	}
+
+	return sb.append('}');
+    }
+}
@@ -0,0 +1,438 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import com.sharethis.common.IOUtils;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import opennlp.maxent.MaxentModel;
+import opennlp.tools.postag.DefaultPOSContextGenerator;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.postag.TagDictionary;
+import opennlp.tools.util.Sequence;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * A maxent part-of-speech tagger which can be built from an already
+ * loaded model, so that each thread can have its own tagger state
+ * while sharing the model parameters.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    BeamTagger
+    extends POSTaggerME
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(BeamTagger.class.getName());
+
+
+    /**
+     * Protected members.
+     */
+
+    protected int beam_size = 0;
+    protected final String[] outcome_names;
+
+    // search buffers, reused across sentences since each thread
+    // has its own tagger
+
+    protected int[][] outcomes = new int[0][0];
+    protected int[][] parents = new int[0][0];
+    protected String[] history = new String[0];
+    protected double[] prev_scores = new double[0];
+    protected double[] next_scores = new double[0];
+    protected double[] top_probs = new double[0];
+    protected double[] probs;
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	BeamTagger (final int beam_size, final int cache_size, final MaxentModel model, final TagDictionary tag_dict)
+    {
+	super(beam_size, model, new DefaultPOSContextGenerator(cache_size, null), tag_dict);
+	this.beam_size = beam_size;
+
+	outcome_names = new String[model.getNumOutcomes()];
+	probs = new double[outcome_names.length];
+
+	for (int i = 0; i < outcome_names.length; i++) {
+	    outcome_names[i] = model.getOutcome(i);
+	}
+    }
+
+
+    /**
+     * Return the top K tag sequences for the token list, where K is
+     * the beam size.
+     */
+
+    public Sequence[]
+	topKSequences (final String[] token_list)
+    {
+	return beam.bestSequences(beam_size, token_list, null);
+    }
+
+
+    /**
+     * Return only the best tag sequence for the token list, searching
+     * with the given beam width. This follows the same pruning as the
+     * OpenNLP beam search, so at the full beam size it picks the same
+     * sequence as topKSequences()[0], but keeps just a score and a
+     * back pointer per hypothesis instead of materializing K
+     * sequences; a width of 1 is a greedy tagger.
+     */
+
+    public String[]
+	bestTags (final String[] token_list, final int width)
+    {
+	final int n = token_list.length;
+	final int w = Math.max(1, width);
+	final String[] tag_list = new String[n];
+
+	if (n == 0) {
+	    return tag_list;
+	}
+
+	ensureCapacity(n, w);
+
+	int prev_count = 1;
+	prev_scores[0] = 0.0D;
+
+	for (int i = 0; i < n; i++) {
+	    String[] allowed = (tagDictionary == null) ? null : tagDictionary.getTags(token_list[i]);
+	    int next_count = 0;
+
+	    for (int h = 0; h < prev_count; h++) {
+		// the context generator only looks back two tags
+
+		if (i > 0) {
+		    history[i - 1] = outcome_names[outcomes[i - 1][h]];
+
+		    if (i > 1) {
+			history[i - 2] = outcome_names[outcomes[i - 2][parents[i - 1][h]]];
+		    }
+		}
+
+		final double[] p = _posModel.eval(_contextGen.getContext(i, token_list, history, null), probs);
+		final double min = getThreshold(p, w);
+		final double score = prev_scores[h];
+
+		for (int o = 0; o < p.length; o++) {
+		    if ((p[o] >= min) && isAllowed(allowed, o)) {
+			next_count = offer(i, w, next_count, score + Math.log(p[o]), h, o);
+		    }
+		}
+
+		if (next_count == 0) {
+		    // nothing in the beam was valid, so advance all
+		    // valid outcomes
+
+		    for (int o = 0; o < p.length; o++) {
+			if (isAllowed(allowed, o)) {
+			    next_count = offer(i, w, next_count, score + Math.log(p[o]), h, o);
+			}
+		    }
+		}
+
+		if ((next_count == 0) && (h == prev_count - 1)) {
+		    // the tag dictionary ruled out every outcome the
+		    // model knows, so ignore it for this token
+
+		    allowed = null;
+		    h = -1;
+		}
+	    }
+
+	    final double[] swap = prev_scores;
+	    prev_scores = next_scores;
+	    next_scores = swap;
+	    prev_count = next_count;
+	}
+
+	int h = 0;
+
+	for (int i = n - 1; i >= 0; i--) {
+	    tag_list[i] = outcome_names[outcomes[i][h]];
+	    h = parents[i][h];
+	}
+
+	return tag_list;
+    }
+
+
+    /**
+     * Grow the search buffers as needed.
+     */
+
+    protected void
+	ensureCapacity (final int n, final int w)
+    {
+	if ((outcomes.length < n) || (prev_scores.length < w)) {
+	    final int len = Math.max(n, outcomes.length);
+	    final int width = Math.max(w, prev_scores.length);
+
+	    outcomes = new int[len][width];
+	    parents = new int[len][width];
+	    history = new String[len];
+	    prev_scores = new double[width];
+	    next_scores = new double[width];
+	    top_probs = new double[width];
+	}
+    }
+
+
+    /**
+     * Return the w-th highest probability, below which an outcome
+     * doesn't get advanced.
+     */
+
+    protected double
+	getThreshold (final double[] p, final int w)
+    {
+	if (w >= p.length) {
+	    return Double.NEGATIVE_INFINITY;
+	}
+
+	int count = 0;
+
+	for (int o = 0; o < p.length; o++) {
+	    final double prob = p[o];
+
+	    if (count < w) {
+		int j = count++;
+
+		while ((j > 0) && (top_probs[j - 1] < prob)) {
+		    top_probs[j] = top_probs[j - 1];
+		    j--;
+		}
+
+		top_probs[j] = prob;
+	    }
+	    else if (prob > top_probs[w - 1]) {
+		int j = w - 1;
+
+		while ((j > 0) && (top_probs[j - 1] < prob)) {
+		    top_probs[j] = top_probs[j - 1];
+		    j--;
+		}
+
+		top_probs[j] = prob;
+	    }
+	}
+
+	return top_probs[w - 1];
+    }
+
+
+    /**
+     * Test whether the tag dictionary allows the outcome.
+     */
+
+    protected boolean
+	isAllowed (final String[] allowed, final int o)
+    {
+	if (allowed == null) {
+	    return true;
+	}
+
+	final String outcome = outcome_names[o];
+
+	for (String tag : allowed) {
+	    if (tag.equals(outcome)) {
+		return true;
+	    }
+	}
+
+	return false;
+    }
+
+
+    /**
+     * Offer a hypothesis for token i to the next beam, which is kept
+     * sorted by score and holds at most w entries; return the new
+     * number of entries.
+     */
+
+    protected int
+	offer (final int i, final int w, final int count, final double score, final int parent, final int outcome)
+    {
+	int j;
+	int next_count = count;
+
+	if (count < w) {
+	    j = next_count++;
+	}
+	else if (score > next_scores[w - 1]) {
+	    j = w - 1;
+	}
+	else {
+	    return next_count;
+	}
+
+	final int[] o = outcomes[i];
+	final int[] p = parents[i];
+
+	while ((j > 0) && (next_scores[j - 1] < score)) {
+	    next_scores[j] = next_scores[j - 1];
+	    o[j] = o[j - 1];
+	    p[j] = p[j - 1];
+	    j--;
+	}
+
+	next_scores[j] = score;
+	o[j] = outcome;
+	p[j] = parent;
+
+	return next_count;
+    }
+
+
+    /**
+     * Compare the best-only search at each beam width against the
+     * top-K search, for tagging accuracy and throughput.
+     */
+
+    public static void
+	main (final String[] args)
+	throws IOException
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final LanguageModel lang;
+
+	try {
+	    lang = LanguageModel.buildLanguage(res_path, lang_code);
+	}
+	catch (Exception e) {
+	    // POSTaggerME.main() only throws IOException
+	    throw new IOException("cannot load language " + lang_code, e);
+	}
+
+	final List<String[]> sentences = new ArrayList<String[]>();
+	long tokens = 0L;
+
+	for (int f = 3; f < args.length; f++) {
+	    for (String sent_text : lang.splitParagraph(IOUtils.readFile(args[f]))) {
+		final String[] token_list = lang.tokenizeSentence(sent_text.trim());
+
+		sentences.add(token_list);
+		tokens += token_list.length;
+	    }
+	}
+
+	// the first pass only warms up the JIT
+
+	final int default_width = lang.getTaggerBeamWidth();
+	final List<String[]> reference = new ArrayList<String[]>();
+	long top_k_time = 0L;
+
+	lang.setTaggerMode(LanguageModel.TaggerMode.TOP_K);
+
+	for (int pass = 0; pass < 2; pass++) {
+	    reference.clear();
+
+	    final long start_time = System.nanoTime();
+
+	    for (String[] token_list : sentences) {
+		reference.add(lang.tagTokens(token_list));
+	    }
+
+	    top_k_time = System.nanoTime() - start_time;
+	}
+
+	LOG.info("SENTENCES:\t" + sentences.size() + ", " + tokens + " tokens");
+	LOG.info("TOP_K:\tbeam " + default_width + ", " + (top_k_time / 1000000L) + " ms");
+
+	lang.setTaggerMode(LanguageModel.TaggerMode.BEST);
+
+	for (int width = 1; width <= default_width; width++) {
+	    lang.setTaggerBeamWidth(width);
+
+	    long best_time = 0L;
+	    long agree = 0L;
+	    long exact = 0L;
+
+	    for (int pass = 0; pass < 2; pass++) {
+		agree = 0L;
+		exact = 0L;
+
+		final long start_time = System.nanoTime();
+
+		for (int s = 0; s < sentences.size(); s++) {
+		    final String[] tag_list = lang.tagTokens(sentences.get(s));
+		    final String[] ref_list = reference.get(s);
+		    int same = 0;
+
+		    for (int i = 0; i < tag_list.length; i++) {
+			if (tag_list[i].equals(ref_list[i])) {
+			    same++;
+			}
+		    }
+
+		    agree += same;
+
+		    if (same == tag_list.length) {
+			exact++;
+		    }
+		}
+
+		best_time = System.nanoTime() - start_time;
+	    }
+
+	    LOG.info("BEST:\twidth " + width + ", accuracy " + ((tokens == 0L) ? 1.0D : ((double) agree / (double) tokens)) + ", " + exact + " sentences identical, " + (best_time / 1000000L) + " ms");
+	}
+
+	lang.setTaggerBeamWidth(default_width);
+    }
+}
@@ -32,23 +32,25 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.sharethis.textrank;
 
-import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-import java.util.HashMap;
+import gnu.trove.TLongObjectHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 
 /**
- * A singleton class implementing a cache of scanned sentences.
+ * A singleton class implementing a cache of scanned sentences, keyed
+ * by the 64-bit fingerprint of their tokens.
  *
  * @author paco@sharethis.com
  */
 
 public class
     Cache
-    extends HashMap<String, Sentence>
 {
     // logging
 
@@ -60,17 +62,71 @@ public class
      * Public definitions.
      */
 
-    public MessageDigest md_sent = null;
+    public int hits = 0;
+    public int collisions = 0;
+    public SentenceCache shared = null;
 
 
     /**
-     * Constructor.
+     * Protected members.
      */
 
-    public
-	Cache ()
-	throws Exception
+    protected final TLongObjectHashMap<Sentence> index = new TLongObjectHashMap<Sentence>();
+    protected final List<Sentence> sentences = new ArrayList<Sentence>();
+
+
+    /**
+     * Add a scanned sentence, unless the same tokens have already
+     * been seen, in which case count a hit and return false.
+     */
+
+    public boolean
+	add (final Sentence s)
+    {
+	final Sentence cache_hit = index.get(s.fingerprint);
+
+	if (cache_hit == null) {
+	    index.put(s.fingerprint, s);
+	}
+	else if (Arrays.equals(cache_hit.token_list, s.token_list)) {
+	    hits++;
+	    return false;
+	}
+	else {
+	    // different tokens with the same fingerprint, so keep
+	    // the sentence without indexing it
+
+	    collisions++;
+
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("fingerprint collision: " + s.fingerprint + " " + s.text);
+	    }
+	}
+
+	sentences.add(s);
+
+	return true;
+    }
+
+
+    /**
+     * The distinct sentences, in the order they were added.
+     */
+
+    public List<Sentence>
+	values ()
+    {
+	return sentences;
+    }
+
+
+    /**
+     * Number of distinct sentences.
+     */
+
+    public int
+	size ()
     {
-	md_sent = MessageDigest.getInstance("MD5");
+	return sentences.size();
     }
 }
@@ -0,0 +1,116 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Tracks a deadline for cooperative cancellation: long-running loops
+ * call check() between units of work, which aborts once the time is
+ * up or the thread has been interrupted.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    Deadline
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(Deadline.class.getName());
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final long start_time;
+    protected final long timeout_nanos;
+
+
+    /**
+     * Constructor. A timeout of zero or less means no time limit,
+     * though an interrupt still aborts.
+     */
+
+    public
+	Deadline (final long timeout_ms)
+    {
+	this.start_time = System.nanoTime();
+	this.timeout_nanos = timeout_ms * 1000000L;
+    }
+
+
+    /**
+     * Determine whether the time limit has passed.
+     */
+
+    public boolean
+	isExpired ()
+    {
+	return (timeout_nanos > 0L) && ((System.nanoTime() - start_time) > timeout_nanos);
+    }
+
+
+    /**
+     * Elapsed time since the deadline was set, in milliseconds.
+     */
+
+    public long
+	getElapsedTime ()
+    {
+	return (System.nanoTime() - start_time) / 1000000L;
+    }
+
+
+    /**
+     * Abort the current stage if the time is up, or if the thread
+     * has been interrupted.
+     */
+
+    public void
+	check (final String stage)
+	throws TextRankTimeoutException
+    {
+	if (Thread.currentThread().isInterrupted()) {
+	    throw new TextRankTimeoutException(stage, getElapsedTime(), true);
+	}
+	else if (isExpired()) {
+	    throw new TextRankTimeoutException(stage, getElapsedTime(), false);
+	}
+    }
+}
@@ -0,0 +1,418 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.lang.reflect.Array;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Compact adjacency for a graph node: the neighbors sit in a growable
+ * array, deduplicated on insert by a linear scan while the degree is
+ * small, and by an open-addressing index of array positions beyond
+ * that. Unlike a hash set there's no per-neighbor entry object, and
+ * most nodes only ever pay for one short array.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    EdgeSet
+    extends AbstractSet<Node>
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(EdgeSet.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int INITIAL_CAPACITY = 4;
+    public final static int LINEAR_SCAN_LIMIT = 8;
+
+    // heap estimates, assuming compressed object pointers
+
+    public final static long OBJECT_BYTES = 24L;
+    public final static long ARRAY_HEADER_BYTES = 16L;
+    public final static long REFERENCE_BYTES = 4L;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final static Node[] EMPTY = new Node[0];
+
+    protected Node[] nodes = EMPTY;
+    protected int size = 0;
+
+    // positions + 1, zero for an empty slot; null until the degree
+    // exceeds LINEAR_SCAN_LIMIT
+
+    protected int[] index = null;
+
+
+    /**
+     * Number of neighbors.
+     */
+
+    public int
+	size ()
+    {
+	return size;
+    }
+
+
+    /**
+     * Test whether the node is a neighbor.
+     */
+
+    public boolean
+	contains (final Object obj)
+    {
+	return (obj instanceof Node) && (find((Node) obj) >= 0);
+    }
+
+
+    /**
+     * Add a neighbor, unless it's already there.
+     */
+
+    public boolean
+	add (final Node n)
+    {
+	if (find(n) >= 0) {
+	    return false;
+	}
+
+	if (size == nodes.length) {
+	    final Node[] grown = new Node[Math.max(INITIAL_CAPACITY, size + (size >> 1))];
+
+	    System.arraycopy(nodes, 0, grown, 0, size);
+	    nodes = grown;
+	}
+
+	nodes[size++] = n;
+
+	if (index != null) {
+	    if ((size << 1) > index.length) {
+		buildIndex();
+	    }
+	    else {
+		index[findSlot(n)] = size;
+	    }
+	}
+	else if (size > LINEAR_SCAN_LIMIT) {
+	    buildIndex();
+	}
+
+	return true;
+    }
+
+
+    /**
+     * Remove a neighbor, if it's there.
+     */
+
+    public boolean
+	remove (final Object obj)
+    {
+	if (!(obj instanceof Node)) {
+	    return false;
+	}
+
+	final int pos = find((Node) obj);
+
+	if (pos < 0) {
+	    return false;
+	}
+
+	removeAt(pos);
+
+	return true;
+    }
+
+
+    /**
+     * Remove all neighbors, releasing the storage.
+     */
+
+    public void
+	clear ()
+    {
+	nodes = EMPTY;
+	size = 0;
+	index = null;
+    }
+
+
+    /**
+     * Iterate through the neighbors, in insertion order until
+     * something gets removed.
+     */
+
+    public Iterator<Node>
+	iterator ()
+    {
+	return new Iterator<Node>() {
+	    private int cursor = 0;
+	    private int last = -1;
+
+	    public boolean
+		hasNext ()
+	    {
+		return cursor < size;
+	    }
+
+	    public Node
+		next ()
+	    {
+		if (cursor >= size) {
+		    throw new NoSuchElementException();
+		}
+
+		last = cursor++;
+
+		return nodes[last];
+	    }
+
+	    public void
+		remove ()
+	    {
+		if (last < 0) {
+		    throw new IllegalStateException();
+		}
+
+		// the last neighbor moves into this position, so
+		// visit it next
+
+		removeAt(last);
+		cursor = last;
+		last = -1;
+	    }
+	};
+    }
+
+
+    /**
+     * Copy the neighbors into an array.
+     */
+
+    @SuppressWarnings("unchecked")
+    public <T> T[]
+	toArray (final T[] a)
+    {
+	final T[] result = (a.length >= size)
+	    ? a
+	    : (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+
+	System.arraycopy(nodes, 0, result, 0, size);
+
+	if (result.length > size) {
+	    result[size] = null;
+	}
+
+	return result;
+    }
+
+
+    /**
+     * Estimate the heap held by this set, in bytes.
+     */
+
+    public long
+	getFootprint ()
+    {
+	long bytes = OBJECT_BYTES;
+
+	if (nodes != EMPTY) {
+	    bytes += ARRAY_HEADER_BYTES + REFERENCE_BYTES * nodes.length;
+	}
+
+	if (index != null) {
+	    bytes += ARRAY_HEADER_BYTES + 4L * index.length;
+	}
+
+	return bytes;
+    }
+
+
+    /**
+     * Return the array position of the node, or -1 if it's not a
+     * neighbor.
+     */
+
+    protected int
+	find (final Node n)
+    {
+	if (index == null) {
+	    for (int i = 0; i < size; i++) {
+		if (nodes[i] == n) {
+		    return i;
+		}
+	    }
+
+	    return -1;
+	}
+
+	return index[findSlot(n)] - 1;
+    }
+
+
+    /**
+     * Linear probe for the index slot which holds the node, or else
+     * the empty slot where it would go.
+     */
+
+    protected int
+	findSlot (final Node n)
+    {
+	final int mask = index.length - 1;
+	int slot = hash(n) & mask;
+
+	while (index[slot] != 0) {
+	    if (nodes[index[slot] - 1] == n) {
+		return slot;
+	    }
+
+	    slot = (slot + 1) & mask;
+	}
+
+	return slot;
+    }
+
+
+    /**
+     * Rebuild the index at no more than half full.
+     */
+
+    protected void
+	buildIndex ()
+    {
+	int capacity = 16;
+
+	while (capacity < (size << 1)) {
+	    capacity <<= 1;
+	}
+
+	index = new int[capacity];
+
+	for (int i = 0; i < size; i++) {
+	    index[findSlot(nodes[i])] = i + 1;
+	}
+    }
+
+
+    /**
+     * Remove the neighbor at the given position, moving the last
+     * neighbor into its place.
+     */
+
+    protected void
+	removeAt (final int pos)
+    {
+	final int last = size - 1;
+
+	if (index != null) {
+	    deleteSlot(findSlot(nodes[pos]));
+
+	    if (pos != last) {
+		index[findSlot(nodes[last])] = pos + 1;
+	    }
+	}
+
+	nodes[pos] = nodes[last];
+	nodes[last] = null;
+	size = last;
+    }
+
+
+    /**
+     * Empty an index slot, shifting back any later entries in the
+     * same probe run so that lookups still find them.
+     */
+
+    protected void
+	deleteSlot (final int slot)
+    {
+	final int mask = index.length - 1;
+	int hole = slot;
+	int i = slot;
+
+	while (true) {
+	    i = (i + 1) & mask;
+
+	    if (index[i] == 0) {
+		break;
+	    }
+
+	    final int home = hash(nodes[index[i] - 1]) & mask;
+
+	    // an entry can move into the hole only if its home slot
+	    // isn't cyclically within (hole, i]
+
+	    final boolean stays = (hole <= i)
+		? ((hole < home) && (home <= i))
+		: ((hole < home) || (home <= i));
+
+	    if (!stays) {
+		index[hole] = index[i];
+		hole = i;
+	    }
+	}
+
+	index[hole] = 0;
+    }
+
+
+    /**
+     * Spread the identity hash code across the index bits.
+     */
+
+    protected static int
+	hash (final Node n)
+    {
+	final int h = System.identityHashCode(n) * 0x9E3779B9;
+
+	return h ^ (h >>> 16);
+    }
+}
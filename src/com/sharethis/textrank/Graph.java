@@ -32,10 +32,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.sharethis.textrank;
 
-import java.util.Arrays;
-import java.util.Comparator;
+import gnu.trove.TLongObjectHashMap;
+
 import java.util.TreeMap;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -66,18 +68,26 @@ public class
     public final static double KEYWORD_REDUCTION_FACTOR = 0.8D;
     public final static double TEXTRANK_DAMPING_FACTOR = 0.85D;
     public final static double STANDARD_ERROR_THRESHOLD = 0.005D;
+    public final static int PARALLEL_THRESHOLD = 50000;
 
     /**
      * Public members.
      */
 
     public SummaryStatistics dist_stats = new SummaryStatistics();
+    public boolean use_rank_matrix = true;
+    public int iterations = 0;
+    public Deadline deadline = null;
 
     /**
      * Protected members.
      */
 
+    protected int parallel_threshold = PARALLEL_THRESHOLD;
+    protected ForkJoinPool rank_pool = null;
+
     protected Node[] node_list = null;
+    protected TLongObjectHashMap<Node> synset_index = null;
 
 
     /**
@@ -87,6 +97,7 @@ public class
 
     public void
 	runTextRank ()
+	throws TextRankTimeoutException
     {
 	final int max_iterations = this.size();
 	node_list = new Node[this.size()];
@@ -101,7 +112,39 @@ public class
 
 	// iterate, then sort and mark the top results
 
-	iterateGraph(max_iterations);
+	if (use_rank_matrix) {
+	    iterateMatrix(max_iterations);
+	}
+	else {
+	    iterateGraph(max_iterations);
+	}
+    }
+
+
+    /**
+     * Iterate over a compressed sparse row layout of the graph,
+     * calculating rank, then write the results back to the nodes.
+     * Graphs with at least parallel_threshold nodes iterate in
+     * parallel, on rank_pool or else the shared fork-join pool.
+     */
+
+    protected void
+	iterateMatrix (final int max_iterations)
+	throws TextRankTimeoutException
+    {
+	final RankMatrix matrix = new RankMatrix(node_list);
+
+	dist_stats.clear();
+
+	if (node_list.length >= parallel_threshold) {
+	    final ForkJoinPool pool = (rank_pool != null) ? rank_pool : SentenceMapper.getSharedPool();
+
+	    iterations = matrix.iterateParallel(pool, max_iterations, TEXTRANK_DAMPING_FACTOR, STANDARD_ERROR_THRESHOLD, deadline);
+	}
+	else {
+	    iterations = matrix.iterate(max_iterations, TEXTRANK_DAMPING_FACTOR, STANDARD_ERROR_THRESHOLD, deadline);
+	}
+	matrix.writeRanks();
     }
 
 
@@ -111,13 +154,20 @@ public class
 
     protected void
 	iterateGraph (final int max_iterations)
+	throws TextRankTimeoutException
     {
 	final double[] rank_list = new double[node_list.length];
 
+	iterations = 0;
+
 	// either run through N iterations, or until the standard
 	// error converges below a threshold
 
 	for (int k = 0; k < max_iterations; k++) {
+	    if (deadline != null) {
+		deadline.check("iterate_graph");
+	    }
+
 	    dist_stats.clear();
 
 	    // calculate the next rank for each node
@@ -150,6 +200,8 @@ public class
 		node_list[i].rank = rank_list[i];
 	    }
 
+	    iterations++;
+
 	    if (standard_error < STANDARD_ERROR_THRESHOLD) {
 		break;
 	    }
@@ -158,40 +210,96 @@ public class
 
 
     /**
-     * Sort results to identify potential keywords.
+     * Lookup a synset node by its WordNet offset, without building
+     * its string key.
+     */
+
+    public Node
+	getSynset (final long offset)
+    {
+	return (synset_index == null) ? null : synset_index.get(offset);
+    }
+
+
+    /**
+     * Add a synset node, indexed by its WordNet offset.
+     */
+
+    public Node
+	buildSynset (final long offset, final SynsetLink synset_link)
+	throws Exception
+    {
+	final Node node = Node.buildNode(this, synset_link.text, synset_link);
+
+	if (synset_index == null) {
+	    synset_index = new TLongObjectHashMap<Node>();
+	}
+
+	synset_index.put(offset, node);
+
+	return node;
+    }
+
+
+    /**
+     * Estimate the heap held by the graph structure, split between
+     * the nodes (with their keys and map entries) and the edges, not
+     * counting the node values.
+     */
+
+    public Footprint
+	memoryFootprint ()
+    {
+	final Footprint footprint = new Footprint();
+
+	for (Node n : this.values()) {
+	    footprint.nodes++;
+	    footprint.edges += n.edges.size();
+	    footprint.node_bytes += Node.NODE_BYTES + Node.GRAPH_ENTRY_BYTES + n.getKeyBytes();
+	    footprint.edge_bytes += n.edges.getFootprint();
+	}
+
+	// each edge gets stored at both of its ends
+
+	footprint.edges /= 2L;
+
+	return footprint;
+    }
+
+
+    /**
+     * Mark the top-ranked results to identify potential keywords.
      */
 
     public void
 	sortResults (final long max_results)
     {
-	Arrays.sort(node_list,
-		    new Comparator<Node>() {
-			public int compare (Node n1, Node n2) {
-			    if (n1.rank > n2.rank) {
-				return -1;
-			    }
-			    else if (n1.rank < n2.rank) {
-				return 1;
-			    }
-			    else {
-				return 0;
-			    }
-			}
-		    }
-		    );
+	final int num_marked = (int) Math.min((long) node_list.length, max_results + 1L);
+	final int[] order = new int[node_list.length];
+
+	for (int i = 0; i < order.length; i++) {
+	    order[i] = i;
+	}
+
+	// partially select the top-ranked nodes, rather than sorting
+	// all of them, breaking ties by position as a stable sort would
+
+	selectTop(order, num_marked);
 
 	// mark the top-ranked nodes
 
 	dist_stats.clear();
 
+	for (int i = 0; i < num_marked; i++) {
+	    final Node n1 = node_list[order[i]];
+
+	    n1.marked = true;
+	    dist_stats.addValue(n1.rank);
+	}
+
 	for (int i = 0; i < node_list.length; i++) {
 	    final Node n1 = node_list[i];
 
-	    if (i <= max_results) {
-		n1.marked = true;
-		dist_stats.addValue(n1.rank);
-	    }
-
 	    if (LOG.isDebugEnabled()) {
 		LOG.debug("n: " + n1.key + " " + n1.rank + " " + n1.marked);
 
@@ -203,6 +311,72 @@ public class
     }
 
 
+    /**
+     * Quickselect, so that the first k entries of the given order
+     * index the k top-ranked nodes, in no particular order.
+     */
+
+    protected void
+	selectTop (final int[] order, final int k)
+    {
+	int lo = 0;
+	int hi = order.length - 1;
+
+	if ((k <= 0) || (k >= order.length)) {
+	    return;
+	}
+
+	while (lo < hi) {
+	    final int pivot = order[(lo + hi) >>> 1];
+	    int i = lo;
+	    int j = hi;
+
+	    while (i <= j) {
+		while (rankBefore(order[i], pivot)) {
+		    i++;
+		}
+
+		while (rankBefore(pivot, order[j])) {
+		    j--;
+		}
+
+		if (i <= j) {
+		    final int swap = order[i];
+		    order[i++] = order[j];
+		    order[j--] = swap;
+		}
+	    }
+
+	    // narrow down to the side which holds the k-th entry
+
+	    if ((k - 1) <= j) {
+		hi = j;
+	    }
+	    else if ((k - 1) >= i) {
+		lo = i;
+	    }
+	    else {
+		break;
+	    }
+	}
+    }
+
+
+    /**
+     * Determine whether one node ranks ahead of another, by rank then
+     * by position in the node list.
+     */
+
+    protected boolean
+	rankBefore (final int i, final int j)
+    {
+	final double rank_i = node_list[i].rank;
+	final double rank_j = node_list[j].rank;
+
+	return (rank_i > rank_j) || ((rank_i == rank_j) && (i < j));
+    }
+
+
     /**
      * Calculate a threshold for the ranked results.
      */
@@ -214,4 +388,43 @@ public class
 	    (dist_stats.getStandardDeviation() * INCLUSIVE_COEFF)
 	    ;
     }
+
+
+    /**
+     * Heap estimate for a graph, in bytes.
+     */
+
+    public static class
+	Footprint
+    {
+	public long nodes = 0L;
+	public long edges = 0L;
+	public long node_bytes = 0L;
+	public long edge_bytes = 0L;
+
+	public long
+	    getTotalBytes ()
+	{
+	    return node_bytes + edge_bytes;
+	}
+
+	public double
+	    getBytesPerNode ()
+	{
+	    return (nodes == 0L) ? 0.0D : ((double) node_bytes / (double) nodes);
+	}
+
+	public double
+	    getBytesPerEdge ()
+	{
+	    return (edges == 0L) ? 0.0D : ((double) edge_bytes / (double) edges);
+	}
+
+	public String
+	    toString ()
+	{
+	    return nodes + " nodes\t" + edges + " edges\t" + getTotalBytes() + " bytes\t" +
+		String.format("%.1f", getBytesPerNode()) + " per node\t" + String.format("%.1f", getBytesPerEdge()) + " per edge";
+	}
+    }
 }
@@ -0,0 +1,410 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import gnu.trove.TObjectIntHashMap;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.Charset;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.commons.math.util.MathUtils;
+
+
+/**
+ * Streams the graph out to a channel for offline analysis, walking
+ * it iteratively from each ranked n-gram. Nodes get compact ids in
+ * the order they are reached, visiting neighbors sorted by key, so
+ * the ids are stable from run to run. Only the id map and the walk
+ * stack are kept in memory; output goes through one buffer.
+ *
+ * The TSV format has the same lines as before, one per rank, node
+ * and (directed) edge:
+ *
+ *   rank  ID  METRIC LINK COUNT SYNSET
+ *   node  ID  DESCRIPTION  RANK
+ *   edge  ID  ID
+ *
+ * The binary format is big-endian: an int magic "TRGB" and an int
+ * version, then records each starting with a tag byte:
+ *
+ *   'R' int id, double metric, link, count, synset
+ *   'N' int id, double rank, int length, UTF-8 description
+ *   'E' int id, int id -- once per edge, lower id first
+ *   'Z' int node count, long edge count -- end of the graph
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    GraphExporter
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(GraphExporter.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public static enum Format { TSV, BINARY }
+
+    public final static int BUFFER_SIZE = 65536;
+    public final static int BINARY_MAGIC = 0x54524742;
+    public final static int BINARY_VERSION = 1;
+
+    public final static Charset UTF8 = Charset.forName("UTF-8");
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final WritableByteChannel channel;
+    protected final Format format;
+    protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    protected final CharsetEncoder encoder = UTF8.newEncoder();
+    protected final StringBuilder line = new StringBuilder();
+
+    protected final TObjectIntHashMap<Node> ids = new TObjectIntHashMap<Node>();
+    protected final ArrayDeque<Node> stack = new ArrayDeque<Node>();
+    protected Node[] neighbors = new Node[16];
+    protected long num_edges = 0L;
+
+    protected final static Comparator<Node> KEY_ORDER =
+	new Comparator<Node>() {
+	    public int compare (Node n1, Node n2) {
+		return n1.key.compareTo(n2.key);
+	    }
+	};
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	GraphExporter (final WritableByteChannel channel, final Format format)
+	throws IOException
+    {
+	this.channel = channel;
+	this.format = format;
+
+	if (format == Format.BINARY) {
+	    buffer.putInt(BINARY_MAGIC);
+	    buffer.putInt(BINARY_VERSION);
+	}
+    }
+
+
+    /**
+     * Export the subgraph reachable from each n-gram which has been
+     * ranked, then flush the buffer. The caller closes the channel.
+     */
+
+    public void
+	export (final Graph ngram_subgraph, final Map<NGram, MetricVector> metric_space)
+	throws IOException
+    {
+	for (Node n : ngram_subgraph.values()) {
+	    final MetricVector mv = metric_space.get((NGram) n.value);
+
+	    if (mv != null) {
+		writeRank(getId(n), mv);
+		walk();
+	    }
+	}
+
+	if (format == Format.BINARY) {
+	    ensure(13);
+	    buffer.put((byte) 'Z');
+	    buffer.putInt(ids.size());
+	    buffer.putLong(num_edges);
+	}
+
+	flush();
+    }
+
+
+    /**
+     * Lookup the id for a node, assigning the next one and queuing
+     * the node to visit if it hasn't been reached yet.
+     */
+
+    protected int
+	getId (final Node n)
+    {
+	int id = ids.get(n);
+
+	if (id == 0) {
+	    // ids are stored off by one, since zero means missing
+
+	    id = ids.size() + 1;
+	    ids.put(n, id);
+	    stack.push(n);
+	}
+
+	return id - 1;
+    }
+
+
+    /**
+     * Visit the queued nodes until the walk runs out, writing each
+     * node along with its edges.
+     */
+
+    protected void
+	walk ()
+	throws IOException
+    {
+	while (!stack.isEmpty()) {
+	    final Node n = stack.pop();
+	    final int id = ids.get(n) - 1;
+	    final int degree = n.edges.size();
+
+	    writeNode(id, n);
+
+	    if (neighbors.length < degree) {
+		neighbors = new Node[Math.max(degree, neighbors.length * 2)];
+	    }
+
+	    n.edges.toArray(neighbors);
+	    Arrays.sort(neighbors, 0, degree, KEY_ORDER);
+
+	    for (int i = 0; i < degree; i++) {
+		writeEdge(id, getId(neighbors[i]));
+		neighbors[i] = null;
+	    }
+	}
+    }
+
+
+    /**
+     * Write the metrics for a ranked n-gram.
+     */
+
+    protected void
+	writeRank (final int id, final MetricVector mv)
+	throws IOException
+    {
+	if (format == Format.BINARY) {
+	    ensure(37);
+	    buffer.put((byte) 'R');
+	    buffer.putInt(id);
+	    buffer.putDouble(mv.metric);
+	    buffer.putDouble(mv.link_rank);
+	    buffer.putDouble(mv.count_rank);
+	    buffer.putDouble(mv.synset_rank);
+	}
+	else {
+	    line.setLength(0);
+	    line.append("rank").append('\t').append(id).append('\t').append(mv.render());
+	    writeLine();
+	}
+    }
+
+
+    /**
+     * Write a node.
+     */
+
+    protected void
+	writeNode (final int id, final Node n)
+	throws IOException
+    {
+	if (format == Format.BINARY) {
+	    final byte[] description = n.value.getDescription().getBytes(UTF8);
+
+	    ensure(17);
+	    buffer.put((byte) 'N');
+	    buffer.putInt(id);
+	    buffer.putDouble(n.rank);
+	    buffer.putInt(description.length);
+	    writeBytes(description);
+	}
+	else {
+	    line.setLength(0);
+	    line.append("node").append('\t').append(id).append('\t');
+	    line.append(n.value.getDescription()).append('\t');
+	    line.append(MathUtils.round(n.rank, 3));
+	    writeLine();
+	}
+    }
+
+
+    /**
+     * Write an edge; the binary format only writes it from the lower
+     * id, since edges are bi-directional.
+     */
+
+    protected void
+	writeEdge (final int id, final int neighbor_id)
+	throws IOException
+    {
+	if (format == Format.BINARY) {
+	    if (id < neighbor_id) {
+		ensure(9);
+		buffer.put((byte) 'E');
+		buffer.putInt(id);
+		buffer.putInt(neighbor_id);
+		num_edges++;
+	    }
+	}
+	else {
+	    line.setLength(0);
+	    line.append("edge").append('\t').append(id).append('\t').append(neighbor_id);
+	    writeLine();
+	    num_edges++;
+	}
+    }
+
+
+    /**
+     * Encode the current line into the buffer, flushing as needed.
+     */
+
+    protected void
+	writeLine ()
+	throws IOException
+    {
+	line.append('\n');
+
+	final CharBuffer chars = CharBuffer.wrap(line);
+
+	encoder.reset();
+
+	while (true) {
+	    final CoderResult result = encoder.encode(chars, buffer, true);
+
+	    if (result.isOverflow()) {
+		flush();
+	    }
+	    else {
+		break;
+	    }
+	}
+    }
+
+
+    /**
+     * Copy bytes into the buffer, flushing as needed.
+     */
+
+    protected void
+	writeBytes (final byte[] bytes)
+	throws IOException
+    {
+	int start = 0;
+
+	while (start < bytes.length) {
+	    if (!buffer.hasRemaining()) {
+		flush();
+	    }
+
+	    final int len = Math.min(buffer.remaining(), bytes.length - start);
+
+	    buffer.put(bytes, start, len);
+	    start += len;
+	}
+    }
+
+
+    /**
+     * Make room in the buffer for a fixed-size record.
+     */
+
+    protected void
+	ensure (final int size)
+	throws IOException
+    {
+	if (buffer.remaining() < size) {
+	    flush();
+	}
+    }
+
+
+    /**
+     * Drain the buffer to the channel.
+     */
+
+    public void
+	flush ()
+	throws IOException
+    {
+	buffer.flip();
+
+	while (buffer.hasRemaining()) {
+	    channel.write(buffer);
+	}
+
+	buffer.clear();
+    }
+
+
+    /**
+     * Number of nodes exported so far.
+     */
+
+    public int
+	getNodeCount ()
+    {
+	return ids.size();
+    }
+
+
+    /**
+     * Number of edges exported so far, counted once per line for
+     * TSV and once per pair for binary.
+     */
+
+    public long
+	getEdgeCount ()
+    {
+	return num_edges;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Lock-free histogram of non-negative long values, e.g., timings in
+ * nanoseconds. Values are counted in log-linear buckets, 32 per power
+ * of two, so the reported percentiles are within ~3% of the actual
+ * values while using a fixed amount of memory.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    Histogram
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(Histogram.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int SUB_BUCKET_BITS = 5;
+    public final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    public final static int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong sum = new AtomicLong();
+    protected final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Record one value; negative values count as zero.
+     */
+
+    public void
+	record (final long value)
+    {
+	final long v = Math.max(0L, value);
+
+	buckets.incrementAndGet(bucketIndex(v));
+	count.incrementAndGet();
+	sum.addAndGet(v);
+
+	long m = max.get();
+
+	while ((v > m) && !max.compareAndSet(m, v)) {
+	    m = max.get();
+	}
+    }
+
+
+    /**
+     * Map a value to its bucket.
+     */
+
+    protected static int
+	bucketIndex (final long v)
+    {
+	if (v < SUB_BUCKET_COUNT) {
+	    return (int) v;
+	}
+
+	final int magnitude = 63 - Long.numberOfLeadingZeros(v);
+	final int sub_bucket = (int) (v >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+	return ((magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT) + sub_bucket;
+    }
+
+
+    /**
+     * Midpoint of the range of values counted in a bucket.
+     */
+
+    protected static long
+	bucketValue (final int index)
+    {
+	if (index < SUB_BUCKET_COUNT) {
+	    return index;
+	}
+
+	final int shift = (index / SUB_BUCKET_COUNT) - 1;
+	final long low = ((long) (SUB_BUCKET_COUNT + (index % SUB_BUCKET_COUNT))) << shift;
+
+	return low + ((1L << shift) >>> 1);
+    }
+
+
+    /**
+     * Number of values recorded.
+     */
+
+    public long
+	getCount ()
+    {
+	return count.get();
+    }
+
+
+    /**
+     * Mean of the values recorded, or zero if there are none.
+     */
+
+    public long
+	getMean ()
+    {
+	final long n = count.get();
+
+	return (n > 0L) ? (sum.get() / n) : 0L;
+    }
+
+
+    /**
+     * Maximum value recorded.
+     */
+
+    public long
+	getMax ()
+    {
+	return max.get();
+    }
+
+
+    /**
+     * Approximate value at the given percentile, between 0.0 and
+     * 1.0. Reads while other threads record may be slightly skewed,
+     * which is fine for monitoring.
+     */
+
+    public long
+	getPercentile (final double percentile)
+    {
+	long total = 0L;
+
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    total += buckets.get(i);
+	}
+
+	if (total == 0L) {
+	    return 0L;
+	}
+
+	final long rank = Math.max(1L, (long) Math.ceil(percentile * (double) total));
+	long seen = 0L;
+
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    seen += buckets.get(i);
+
+	    if (seen >= rank) {
+		return Math.min(bucketValue(i), max.get());
+	    }
+	}
+
+	return max.get();
+    }
+
+
+    /**
+     * Clear all of the recorded values.
+     */
+
+    public void
+	reset ()
+    {
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    buckets.set(i, 0L);
+	}
+
+	count.set(0L);
+	sum.set(0L);
+	max.set(0L);
+    }
+}
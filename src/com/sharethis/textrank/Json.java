@@ -0,0 +1,508 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Just enough JSON to exchange documents and key phrases with other
+ * services, without pulling in another JAR: objects parse into a Map,
+ * arrays into a List, numbers into a Double.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    Json
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(Json.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int MAX_DEPTH = 512;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final String text;
+    protected int pos = 0;
+    protected int depth = 0;
+
+
+    /**
+     * Constructor.
+     */
+
+    protected
+	Json (final String text)
+    {
+	this.text = text;
+    }
+
+
+    /**
+     * Parse one JSON value from the given text.
+     */
+
+    public static Object
+	parse (final String text)
+	throws IllegalArgumentException
+    {
+	final Json json = new Json(text);
+	final Object value = json.parseValue();
+
+	json.skipSpace();
+
+	if (json.pos < text.length()) {
+	    throw json.error("trailing characters");
+	}
+
+	return value;
+    }
+
+
+    /**
+     * Parse one JSON object from the given text.
+     */
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object>
+	parseObject (final String text)
+	throws IllegalArgumentException
+    {
+	final Object value = parse(text);
+
+	if (!(value instanceof Map)) {
+	    throw new IllegalArgumentException("expected a JSON object");
+	}
+
+	return (Map<String, Object>) value;
+    }
+
+
+    /**
+     * Append a string to the buffer as a quoted JSON string.
+     */
+
+    public static StringBuilder
+	quote (final StringBuilder sb, final String s)
+    {
+	sb.append('"');
+
+	for (int i = 0; i < s.length(); i++) {
+	    final char c = s.charAt(i);
+
+	    switch (c) {
+	    case '"':
+		sb.append("\\\"");
+		break;
+	    case '\\':
+		sb.append("\\\\");
+		break;
+	    case '\n':
+		sb.append("\\n");
+		break;
+	    case '\r':
+		sb.append("\\r");
+		break;
+	    case '\t':
+		sb.append("\\t");
+		break;
+	    default:
+		if (c < 0x20) {
+		    sb.append(String.format("\\u%04x", (int) c));
+		}
+		else {
+		    sb.append(c);
+		}
+	    }
+	}
+
+	return sb.append('"');
+    }
+
+
+    /**
+     * Append a number, with non-finite values as null.
+     */
+
+    public static StringBuilder
+	number (final StringBuilder sb, final double d)
+    {
+	if (Double.isNaN(d) || Double.isInfinite(d)) {
+	    return sb.append("null");
+	}
+
+	return sb.append(d);
+    }
+
+
+    /**
+     * Lookup a field of a parsed object, with a default.
+     */
+
+    public static String
+	getString (final Map<String, Object> obj, final String key, final String default_value)
+    {
+	final Object value = obj.get(key);
+
+	if (value instanceof String) {
+	    return (String) value;
+	}
+	else if (value != null) {
+	    throw new IllegalArgumentException("expected a string for \"" + key + "\"");
+	}
+
+	return default_value;
+    }
+
+
+    /**
+     * Lookup a numeric field of a parsed object, with a default.
+     */
+
+    public static long
+	getLong (final Map<String, Object> obj, final String key, final long default_value)
+    {
+	final Object value = obj.get(key);
+
+	if (value instanceof Number) {
+	    return ((Number) value).longValue();
+	}
+	else if (value != null) {
+	    throw new IllegalArgumentException("expected a number for \"" + key + "\"");
+	}
+
+	return default_value;
+    }
+
+
+    /**
+     * Lookup a boolean field of a parsed object, with a default.
+     */
+
+    public static boolean
+	getBoolean (final Map<String, Object> obj, final String key, final boolean default_value)
+    {
+	final Object value = obj.get(key);
+
+	if (value instanceof Boolean) {
+	    return ((Boolean) value).booleanValue();
+	}
+	else if (value != null) {
+	    throw new IllegalArgumentException("expected a boolean for \"" + key + "\"");
+	}
+
+	return default_value;
+    }
+
+
+    /**
+     * Recursive descent, one value at a time, with the nesting
+     * limited so that hostile input cannot overflow the stack.
+     */
+
+    protected Object
+	parseValue ()
+    {
+	skipSpace();
+
+	if (pos >= text.length()) {
+	    throw error("unexpected end of input");
+	}
+
+	final char c = text.charAt(pos);
+
+	switch (c) {
+	case '{':
+	    enter();
+	    final Map<String, Object> map = parseMap();
+	    depth--;
+	    return map;
+	case '[':
+	    enter();
+	    final List<Object> list = parseList();
+	    depth--;
+	    return list;
+	case '"':
+	    return parseString();
+	case 't':
+	    expect("true");
+	    return Boolean.TRUE;
+	case 'f':
+	    expect("false");
+	    return Boolean.FALSE;
+	case 'n':
+	    expect("null");
+	    return null;
+	default:
+	    return parseNumber();
+	}
+    }
+
+
+    /**
+     * Parse an object.
+     */
+
+    protected Map<String, Object>
+	parseMap ()
+    {
+	final Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+	pos++;
+	skipSpace();
+
+	if (peek() == '}') {
+	    pos++;
+	    return map;
+	}
+
+	while (true) {
+	    skipSpace();
+
+	    if (peek() != '"') {
+		throw error("expected a key");
+	    }
+
+	    final String key = parseString();
+
+	    skipSpace();
+	    expect(":");
+	    map.put(key, parseValue());
+	    skipSpace();
+
+	    final char c = next();
+
+	    if (c == '}') {
+		return map;
+	    }
+	    else if (c != ',') {
+		throw error("expected ',' or '}'");
+	    }
+	}
+    }
+
+
+    /**
+     * Parse an array.
+     */
+
+    protected List<Object>
+	parseList ()
+    {
+	final List<Object> list = new ArrayList<Object>();
+
+	pos++;
+	skipSpace();
+
+	if (peek() == ']') {
+	    pos++;
+	    return list;
+	}
+
+	while (true) {
+	    list.add(parseValue());
+	    skipSpace();
+
+	    final char c = next();
+
+	    if (c == ']') {
+		return list;
+	    }
+	    else if (c != ',') {
+		throw error("expected ',' or ']'");
+	    }
+	}
+    }
+
+
+    /**
+     * Parse a quoted string, handling the escapes.
+     */
+
+    protected String
+	parseString ()
+    {
+	final StringBuilder sb = new StringBuilder();
+
+	pos++;
+
+	while (true) {
+	    final char c = next();
+
+	    if (c == '"') {
+		return sb.toString();
+	    }
+	    else if (c != '\\') {
+		sb.append(c);
+		continue;
+	    }
+
+	    final char e = next();
+
+	    switch (e) {
+	    case 'b':
+		sb.append('\b');
+		break;
+	    case 'f':
+		sb.append('\f');
+		break;
+	    case 'n':
+		sb.append('\n');
+		break;
+	    case 'r':
+		sb.append('\r');
+		break;
+	    case 't':
+		sb.append('\t');
+		break;
+	    case 'u':
+		if (pos + 4 > text.length()) {
+		    throw error("bad unicode escape");
+		}
+
+		try {
+		    sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+		}
+		catch (NumberFormatException nfe) {
+		    throw error("bad unicode escape");
+		}
+
+		pos += 4;
+		break;
+	    default:
+		sb.append(e);
+	    }
+	}
+    }
+
+
+    /**
+     * Parse a number.
+     */
+
+    protected Double
+	parseNumber ()
+    {
+	final int start = pos;
+
+	while ((pos < text.length()) && ("+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)) {
+	    pos++;
+	}
+
+	try {
+	    return Double.valueOf(text.substring(start, pos));
+	}
+	catch (NumberFormatException nfe) {
+	    pos = start;
+	    throw error("unexpected character");
+	}
+    }
+
+
+    /**
+     * Helper methods for scanning.
+     */
+
+    protected void
+	skipSpace ()
+    {
+	while ((pos < text.length()) && Character.isWhitespace(text.charAt(pos))) {
+	    pos++;
+	}
+    }
+
+
+    protected char
+	peek ()
+    {
+	if (pos >= text.length()) {
+	    throw error("unexpected end of input");
+	}
+
+	return text.charAt(pos);
+    }
+
+
+    protected char
+	next ()
+    {
+	final char c = peek();
+	pos++;
+
+	return c;
+    }
+
+
+    protected void
+	expect (final String token)
+    {
+	if (!text.startsWith(token, pos)) {
+	    throw error("expected " + token);
+	}
+
+	pos += token.length();
+    }
+
+
+    protected void
+	enter ()
+    {
+	if (++depth > MAX_DEPTH) {
+	    throw error("nested deeper than " + MAX_DEPTH);
+	}
+    }
+
+
+    protected IllegalArgumentException
+	error (final String message)
+    {
+	return new IllegalArgumentException("bad JSON at offset " + pos + ": " + message);
+    }
+}
@@ -34,9 +34,12 @@ package com.sharethis.textrank;
 
 import java.io.File;
 
-import opennlp.tools.lang.english.ParserTagger;
-import opennlp.tools.lang.english.SentenceDetector;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import opennlp.tools.lang.english.Tokenizer;
+import opennlp.tools.postag.TagDictionary;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.util.Sequence;
 
@@ -67,24 +70,140 @@ public class
      * Public definitions.
      */
 
-    public static SentenceDetectorME splitter_en = null;
-    public static Tokenizer tokenizer_en = null;
-    public static ParserTagger tagger_en = null;
-    public static englishStemmer stemmer_en = null;
+    public final static int TAGGER_BEAM_SIZE = 10;
+    public final static int TAGGER_CACHE_SIZE = 10;
+    public final static int TAG_DICT_HEAP_FACTOR = 14;
+
+    // abbreviations which keep their period within a sentence,
+    // leaving out those which are also common words, e.g., "no"
+
+    public final static Set<String> ABBREVIATIONS =
+	new HashSet<String>(Arrays.asList(new String[] {
+		    "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "gov", "sen", "col", "lt", "sgt",
+		    "vs", "etc", "inc", "ltd", "co", "corp", "dept", "approx", "vol", "fig",
+		    "jan", "feb", "apr", "jun", "jul", "aug", "sept", "oct", "nov"
+		}));
+
+    // contractions which split off as their own tokens, without the
+    // apostrophe
+
+    public final static Set<String> CONTRACTIONS =
+	new HashSet<String>(Arrays.asList(new String[] {
+		    "s", "re", "ve", "ll", "m", "d", RuleTokenizer.NEGATION
+		}));
+
+    public final static String[] TOKENIZER_SAMPLES = {
+	"He said no.",
+	"The report was filed in Sept.",
+	"She works for Acme Co.",
+	"Mr. Smith met Gov. Palin in Jan. last year.",
+	"It costs 1,000 dollars, etc. and more.",
+	"We've seen the U.S. before."
+    };
+
+
+    /**
+     * Protected members. The models get loaded ONCE per instance,
+     * which the registry in LanguageModel keeps per resource path,
+     * and then shared read-only across threads.
+     */
+
+    protected volatile Resources resources = null;
+
+
+    /**
+     * Per-thread tools, since the OpenNLP tools and the Snowball
+     * stemmer all keep mutable state between calls; released when
+     * the language gets unloaded.
+     */
+
+    protected final ThreadTools<Tools> tools =
+	new ThreadTools<Tools>() {
+	    protected Tools create () {
+		return new Tools(resources);
+	    }
+	};
+
+
+    /**
+     * Immutable set of models loaded for this language.
+     */
+
+    protected static class
+	Resources
+    {
+	public final SharedModel splitter_model;
+	public final SharedModel tokenizer_model;
+	public final SharedModel tagger_model;
+	public final TagDictionary tag_dict;
+	public final long tag_dict_footprint;
+
+	public
+	    Resources (final String path)
+	    throws Exception
+	{
+	    splitter_model =
+		SharedModel.loadModel(new File(path, "opennlp/EnglishSD.bin.gz"));
+
+	    tokenizer_model =
+		SharedModel.loadModel(new File(path, "opennlp/EnglishTok.bin.gz"));
+
+	    tagger_model =
+		SharedModel.loadModel(new File(path, "opennlp/tag.bin.gz"));
+
+	    tag_dict =
+		MappedTagDictionary.loadDictionary(new File(path, "opennlp/tagdict"), false);
+
+	    // POSDictionary takes about 14 bytes of heap per byte
+	    // of its text file
+
+	    tag_dict_footprint = (tag_dict instanceof MappedTagDictionary)
+		? ((MappedTagDictionary) tag_dict).getFootprint()
+		: TAG_DICT_HEAP_FACTOR * new File(path, "opennlp/tagdict").length();
+	}
+    }
+
+
+    /**
+     * Tool instances owned by one thread.
+     */
+
+    protected static class
+	Tools
+    {
+	public final SentenceDetectorME splitter;
+	public final Tokenizer tokenizer;
+	public final BeamTagger tagger;
+	public final englishStemmer stemmer;
+
+	public
+	    Tools (final Resources res)
+	{
+	    try {
+		splitter = new SentenceDetectorME(res.splitter_model);
+		tokenizer = new Tokenizer(res.tokenizer_model);
+		tagger = new BeamTagger(TAGGER_BEAM_SIZE, TAGGER_CACHE_SIZE, res.tagger_model, res.tag_dict);
+		stemmer = new englishStemmer();
+	    }
+	    catch (Exception e) {
+		throw new RuntimeException("cannot build English tools", e);
+	    }
+	}
+    }
 
 
     /**
-     * Constructor. Not quite a Singleton pattern but close enough
-     * given the resources required to be loaded ONCE.
+     * Constructor. Use LanguageModel.buildLanguage() to load each
+     * resource path ONCE.
      */
 
     public
 	LanguageEnglish (final String path)
 	throws Exception
     {
-	if (splitter_en == null) {
-	    loadResources(path);
-	}
+	loadResources(path);
+	rule_tokenizer = new RuleTokenizer(true, ABBREVIATIONS, CONTRACTIONS);
+	tagger_beam_width = TAGGER_BEAM_SIZE;
     }
 
 
@@ -96,20 +215,23 @@ public class
 	loadResources (final String path)
 	throws Exception
     {
-	splitter_en =
-		new SentenceDetector((new File(path, "opennlp/EnglishSD.bin.gz")).getPath());
+	resources = new Resources(path);
+    }
+
 
-	tokenizer_en =
-	    new Tokenizer((new File(path, "opennlp/EnglishTok.bin.gz")).getPath());
+    /**
+     * Estimate the memory held by the models, in bytes.
+     */
 
-	tagger_en =
-	    new ParserTagger((new File(path, "opennlp/tag.bin.gz")).getPath(),
-			     (new File(path, "opennlp/tagdict")).getPath(),
-			     false
-			     );
+    public long
+	getFootprint ()
+    {
+	final Resources res = resources;
 
-	stemmer_en =
-	    new englishStemmer();
+	return res.splitter_model.getFootprint() +
+	    res.tokenizer_model.getFootprint() +
+	    res.tagger_model.getFootprint() +
+	    res.tag_dict_footprint;
     }
 
 
@@ -120,7 +242,7 @@ public class
     public String[]
 	splitParagraph (final String text)
     {
-	return splitter_en.sentDetect(text);
+	return tools.get().splitter.sentDetect(text);
     }
 
 
@@ -131,7 +253,12 @@ public class
     public String[]
 	tokenizeSentence (final String text)
     {
-	final String[] token_list = tokenizer_en.tokenize(text);
+	if (tokenizer_mode == TokenizerMode.RULES) {
+	    // already lower case and without quotes
+	    return rule_tokenizer.tokenize(text);
+	}
+
+	final String[] token_list = tools.get().tokenizer.tokenize(text);
 
 	for (int i = 0; i < token_list.length; i++) {
 	    token_list[i] = token_list[i].replace("\"", "").toLowerCase().trim();
@@ -148,7 +275,11 @@ public class
     public String[]
 	tagTokens (final String[] token_list)
     {
-	final Sequence[] sequences = tagger_en.topKSequences(token_list);
+	if (tagger_mode == TaggerMode.BEST) {
+	    return tools.get().tagger.bestTags(token_list, tagger_beam_width);
+	}
+
+	final Sequence[] sequences = tools.get().tagger.topKSequences(token_list);
 	final String[] tag_list = new String[token_list.length];
 
 	int i = 0;
@@ -162,13 +293,24 @@ public class
     }
 
 
+    /**
+     * Sentences which the tokenizer agreement report always checks.
+     */
+
+    public String[]
+	getTokenizerSamples ()
+    {
+	return TOKENIZER_SAMPLES;
+    }
+
+
     /**
      * Prepare a stable key for a graph node (stemmed, lemmatized)
      * from a token.
      */
 
-    public String
-	getNodeKey (final String text, final String pos)
+    protected String
+	buildNodeKey (final String text, final String pos)
         throws Exception
     {
 	return pos.substring(0, 2) + stemToken(scrubToken(text)).toLowerCase();
@@ -204,9 +346,11 @@ public class
     public String
 	stemToken (final String token)
     {
-	stemmer_en.setCurrent(token);
-	stemmer_en.stem();
+	final englishStemmer stemmer = tools.get().stemmer;
+
+	stemmer.setCurrent(token);
+	stemmer.stem();
 
-	return stemmer_en.getCurrent();
+	return stemmer.getCurrent();
     }
 }
@@ -32,13 +32,31 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.sharethis.textrank;
 
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 
 /**
  * Facade for handling language-specific tools in natural language
- * processing.
+ * processing, plus a registry which loads each language lazily, on
+ * first use, exactly once per resource path.
  *
  * @author paco@sharethis.com
  */
@@ -57,27 +75,522 @@ public abstract class
      */
 
     public final static int TOKEN_LENGTH_LIMIT = 50;
+    public final static int NODE_KEY_CACHE_SIZE = 100000;
+    public final static String TOKENIZER_PROPERTY = "textrank.tokenizer";
+    public final static String TAGGER_PROPERTY = "textrank.tagger";
+    public final static String TAGGER_WIDTH_PROPERTY = "textrank.tagger.width";
+
+    public enum TokenizerMode { MAXENT, RULES };
+    public enum TaggerMode { TOP_K, BEST };
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final LruCache<String, String> node_key_cache =
+	new LruCache<String, String>(NODE_KEY_CACHE_SIZE);
+
+    protected volatile TokenizerMode tokenizer_mode = TokenizerMode.MAXENT;
+    protected RuleTokenizer rule_tokenizer = new RuleTokenizer(false, Collections.<String>emptySet(), Collections.<String>emptySet());
+    protected volatile TaggerMode tagger_mode = TaggerMode.BEST;
+    protected volatile int tagger_beam_width = 1;
+
+    protected final static AtomicLong model_count = new AtomicLong();
+    protected final long model_id = model_count.incrementAndGet();
+
+    protected final AtomicInteger active_users = new AtomicInteger();
+    protected volatile long last_used = System.currentTimeMillis();
+
+    protected final List<ThreadTools<?>> thread_tools =
+	new CopyOnWriteArrayList<ThreadTools<?>>();
+
+    protected final static ConcurrentMap<String, Factory> factories =
+	new ConcurrentHashMap<String, Factory>();
+
+    protected final static ConcurrentMap<String, Registration> registry =
+	new ConcurrentHashMap<String, Registration>();
+
+    static {
+	registerFactory("en", new Factory() {
+		public LanguageModel build (final String path) throws Exception {
+		    return new LanguageEnglish(path);
+		}
+	    });
+
+	registerFactory("es", new Factory() {
+		public LanguageModel build (final String path) throws Exception {
+		    return new LanguageSpanish(path);
+		}
+	    });
+    }
+
+
+    /**
+     * Builds the model for one language, given its resource path.
+     */
+
+    public interface
+	Factory
+    {
+	public LanguageModel
+	    build (final String path)
+	    throws Exception
+	    ;
+    }
+
+
+    /**
+     * One language in the registry: loaded at most once, by whichever
+     * thread asks for it first, while the others wait.
+     */
+
+    public static class
+	Registration
+	implements Callable<LanguageModel>
+    {
+	public final String lang_code;
+	public final String path;
+
+	protected final Factory factory;
+	protected final FutureTask<LanguageModel> loader;
+	protected volatile LanguageModel lang = null;
+	protected volatile long load_time = 0L;
+	protected volatile long last_used = 0L;
+
+	public
+	    Registration (final String lang_code, final String path, final Factory factory)
+	{
+	    this.lang_code = lang_code;
+	    this.path = path;
+	    this.factory = factory;
+	    this.loader = new FutureTask<LanguageModel>(this);
+	}
+
+	public LanguageModel
+	    call ()
+	    throws Exception
+	{
+	    final long start_time = System.currentTimeMillis();
+
+	    final LanguageModel l = factory.build(path);
+
+	    // e.g., -Dtextrank.tokenizer.en=rules
+
+	    final String mode = System.getProperty(TOKENIZER_PROPERTY + "." + lang_code);
+
+	    if (mode != null) {
+		l.setTokenizerMode(TokenizerMode.valueOf(mode.toUpperCase()));
+	    }
+
+	    // e.g., -Dtextrank.tagger.en=top_k -Dtextrank.tagger.width.en=3
+
+	    final String tagger = System.getProperty(TAGGER_PROPERTY + "." + lang_code);
+
+	    if (tagger != null) {
+		l.setTaggerMode(TaggerMode.valueOf(tagger.toUpperCase()));
+	    }
+
+	    final String width = System.getProperty(TAGGER_WIDTH_PROPERTY + "." + lang_code);
+
+	    if (width != null) {
+		l.setTaggerBeamWidth(Integer.parseInt(width));
+	    }
+
+	    lang = l;
+	    load_time = System.currentTimeMillis() - start_time;
+	    lang.registerMetrics(MetricsRegistry.getDefault(), lang_code);
+
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("loaded language " + lang_code + " from " + path + " in " + load_time + " ms, " + lang.getFootprint() + " bytes");
+	    }
+
+	    return lang;
+	}
+
+	/**
+	 * Load the language, if no other thread has yet, then wait
+	 * for it.
+	 */
+
+	public LanguageModel
+	    get ()
+	    throws Exception
+	{
+	    last_used = System.currentTimeMillis();
+	    loader.run();
+
+	    try {
+		final LanguageModel l = loader.get();
+
+		// loading may take a while, so count from when it's handed over
+		last_used = System.currentTimeMillis();
+
+		return l;
+	    }
+	    catch (ExecutionException e) {
+		if (e.getCause() instanceof Exception) {
+		    throw (Exception) e.getCause();
+		}
+
+		throw e;
+	    }
+	}
+
+	public boolean
+	    isLoaded ()
+	{
+	    return lang != null;
+	}
+
+	/**
+	 * Load time, in milliseconds.
+	 */
+
+	public long
+	    getLoadTime ()
+	{
+	    return load_time;
+	}
+
+	/**
+	 * When the language was last asked for, or last did any work,
+	 * in milliseconds since the epoch.
+	 */
+
+	public long
+	    getLastUsed ()
+	{
+	    final LanguageModel l = lang;
+
+	    return (l == null) ? last_used : Math.max(last_used, l.getLastUsed());
+	}
+
+	/**
+	 * Determine whether the language is doing any work right now.
+	 */
+
+	public boolean
+	    isInUse ()
+	{
+	    final LanguageModel l = lang;
+
+	    return (l != null) && l.isInUse();
+	}
+
+	/**
+	 * Estimated memory held by the models, in bytes.
+	 */
+
+	public long
+	    getFootprint ()
+	{
+	    final LanguageModel l = lang;
+
+	    return (l == null) ? 0L : l.getFootprint();
+	}
+
+	public String
+	    toString ()
+	{
+	    return lang_code + " " + path + (isLoaded() ? (" loaded in " + load_time + " ms, " + getFootprint() + " bytes") : " loading");
+	}
+    }
+
+
+    /**
+     * Per-thread tools which belong to this language instance. A
+     * plain ThreadLocal would keep each thread's tools, and through
+     * them the models, reachable from every long-lived worker thread
+     * which ever used the language; instead the instance tracks the
+     * holders, so that releaseTools() can drop them all on unload.
+     */
+
+    protected abstract class
+	ThreadTools<T>
+    {
+	protected final ThreadLocal<Holder<T>> local =
+	    new ThreadLocal<Holder<T>>();
+
+	protected final ConcurrentLinkedQueue<WeakReference<Holder<T>>> holders =
+	    new ConcurrentLinkedQueue<WeakReference<Holder<T>>>();
+
+	public
+	    ThreadTools ()
+	{
+	    thread_tools.add(this);
+	}
+
+	protected abstract T
+	    create ()
+	    ;
+
+	public T
+	    get ()
+	{
+	    Holder<T> holder = local.get();
+
+	    if (holder == null) {
+		holder = new Holder<T>();
+		local.set(holder);
+
+		// the holders of threads which have ended get
+		// collected, so prune their references
+
+		final Iterator<WeakReference<Holder<T>>> iter = holders.iterator();
+
+		while (iter.hasNext()) {
+		    if (iter.next().get() == null) {
+			iter.remove();
+		    }
+		}
+
+		holders.add(new WeakReference<Holder<T>>(holder));
+	    }
+
+	    T tools = holder.tools;
+
+	    if (tools == null) {
+		tools = create();
+		holder.tools = tools;
+	    }
+
+	    return tools;
+	}
+
+	public void
+	    clear ()
+	{
+	    for (WeakReference<Holder<T>> ref : holders) {
+		final Holder<T> holder = ref.get();
+
+		if (holder != null) {
+		    holder.tools = null;
+		}
+	    }
+
+	    holders.clear();
+	}
+    }
+
+
+    /**
+     * Slot for one thread's tools, which can be emptied from another
+     * thread.
+     */
+
+    protected static class
+	Holder<T>
+    {
+	protected volatile T tools = null;
+    }
+
+
+    /**
+     * Mark the start of some work with this language, e.g., ranking
+     * a document, so that it counts as in use and doesn't get
+     * unloaded as idle; pair each call with endUse() in a finally
+     * block.
+     */
+
+    public void
+	beginUse ()
+    {
+	active_users.incrementAndGet();
+	last_used = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Mark the end of some work with this language.
+     */
+
+    public void
+	endUse ()
+    {
+	last_used = System.currentTimeMillis();
+	active_users.decrementAndGet();
+    }
+
+
+    /**
+     * Determine whether any work with this language is under way.
+     */
+
+    public boolean
+	isInUse ()
+    {
+	return active_users.get() > 0;
+    }
+
+
+    /**
+     * When this language last did any work, in milliseconds since
+     * the epoch.
+     */
+
+    public long
+	getLastUsed ()
+    {
+	return last_used;
+    }
+
+
+    /**
+     * Release the per-thread tools of every thread, so that only
+     * the callers still holding this instance keep the models
+     * reachable; any later call builds new tools.
+     */
+
+    public void
+	releaseTools ()
+    {
+	for (ThreadTools<?> t : thread_tools) {
+	    t.clear();
+	}
+    }
+
+
+    /**
+     * Register the factory for a language code, so that languages
+     * can be added without touching buildLanguage().
+     */
+
+    public static void
+	registerFactory (final String lang_code, final Factory factory)
+    {
+	factories.put(lang_code, factory);
+    }
 
 
     /**
      * Factory method, loads libraries for OpenNLP based on the given
-     * language code.
+     * language code, the first time each language gets asked for,
+     * then returns the same instance. Returns null for an unknown
+     * language.
      */
 
     public static LanguageModel
 	buildLanguage (final String resource_path, final String lang_code)
 	throws Exception
     {
-	LanguageModel lang = null;
+	final Factory factory = factories.get(lang_code);
+
+	if (factory == null) {
+	    return null;
+	}
+
+	final String path = resource_path + "/" + lang_code;
+	Registration reg = registry.get(path);
+
+	if (reg == null) {
+	    final Registration new_reg = new Registration(lang_code, path, factory);
+
+	    reg = registry.putIfAbsent(path, new_reg);
+
+	    if (reg == null) {
+		reg = new_reg;
+	    }
+	}
+
+	try {
+	    return reg.get();
+	}
+	catch (Exception e) {
+	    // don't cache the failure, so that the next call retries
+
+	    registry.remove(path, reg);
+	    throw e;
+	}
+    }
+
+
+    /**
+     * Report each language in the registry.
+     */
+
+    public static List<Registration>
+	getRegistrations ()
+    {
+	return new ArrayList<Registration>(registry.values());
+    }
+
 
-	if ("en".equals(lang_code)) {
-	    lang = new LanguageEnglish(resource_path + "/" + lang_code);
+    /**
+     * Drop a language from the registry, so that its models can be
+     * garbage collected once the callers holding it let go. The next
+     * buildLanguage() call loads it again.
+     */
+
+    public static boolean
+	unloadLanguage (final String resource_path, final String lang_code)
+    {
+	final Registration reg = registry.remove(resource_path + "/" + lang_code);
+
+	if (reg == null) {
+	    return false;
 	}
-	else if ("es".equals(lang_code)) {
-	    lang = new LanguageSpanish(resource_path + "/" + lang_code);
+
+	unregister(reg);
+
+	return true;
+    }
+
+
+    /**
+     * Drop the loaded languages which nobody has asked for or worked
+     * with within the given time, in milliseconds, returning how
+     * many. A language which is in use never gets dropped.
+     */
+
+    public static int
+	unloadIdle (final long max_idle)
+    {
+	final long now = System.currentTimeMillis();
+	int count = 0;
+
+	for (Registration reg : registry.values()) {
+	    if (reg.isLoaded() && !reg.isInUse() && ((now - reg.getLastUsed()) > max_idle) && registry.remove(reg.path, reg)) {
+		if (reg.isInUse()) {
+		    // some work started since the check, so put it back
+
+		    registry.putIfAbsent(reg.path, reg);
+		    continue;
+		}
+
+		unregister(reg);
+		count++;
+	    }
 	}
 
-	return lang;
+	return count;
+    }
+
+
+    /**
+     * Release the gauges which refer to an unloaded language, unless
+     * the same language code has been loaded from another path.
+     */
+
+    protected static void
+	unregister (final Registration reg)
+    {
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("unloaded language " + reg);
+	}
+
+	if (reg.isLoaded()) {
+	    reg.lang.releaseTools();
+
+	    for (Registration other : registry.values()) {
+		if (other.lang_code.equals(reg.lang_code) && other.isLoaded()) {
+		    other.lang.registerMetrics(MetricsRegistry.getDefault(), other.lang_code);
+		    return;
+		}
+	    }
+
+	    reg.lang.unregisterMetrics(MetricsRegistry.getDefault(), reg.lang_code);
+	}
     }
 
 
@@ -109,6 +622,115 @@ public abstract class
 	;
 
 
+    /**
+     * Select between the maxent tokenizer and the rule-based one for
+     * this language.
+     */
+
+    public void
+	setTokenizerMode (final TokenizerMode tokenizer_mode)
+    {
+	this.tokenizer_mode = tokenizer_mode;
+    }
+
+
+    /**
+     * Accessor for the tokenizer mode.
+     */
+
+    public TokenizerMode
+	getTokenizerMode ()
+    {
+	return tokenizer_mode;
+    }
+
+
+    /**
+     * Accessor for the rule-based tokenizer of this language.
+     */
+
+    public RuleTokenizer
+	getRuleTokenizer ()
+    {
+	return rule_tokenizer;
+    }
+
+
+    /**
+     * Sentences which the tokenizer agreement report always checks,
+     * since they're easy to get wrong with rules.
+     */
+
+    public String[]
+	getTokenizerSamples ()
+    {
+	return new String[0];
+    }
+
+
+    /**
+     * Select between the full top-K beam search, which keeps the
+     * whole beam of tag sequences, and the search for only the best
+     * sequence.
+     */
+
+    public void
+	setTaggerMode (final TaggerMode tagger_mode)
+    {
+	this.tagger_mode = tagger_mode;
+    }
+
+
+    /**
+     * Accessor for the tagger mode.
+     */
+
+    public TaggerMode
+	getTaggerMode ()
+    {
+	return tagger_mode;
+    }
+
+
+    /**
+     * Set the beam width used when tagging in BEST mode; narrower
+     * is faster, while 1 is a greedy tagger.
+     */
+
+    public void
+	setTaggerBeamWidth (final int tagger_beam_width)
+    {
+	if (tagger_beam_width < 1) {
+	    throw new IllegalArgumentException("beam width must be at least 1: " + tagger_beam_width);
+	}
+
+	this.tagger_beam_width = tagger_beam_width;
+    }
+
+
+    /**
+     * Accessor for the beam width used when tagging in BEST mode.
+     */
+
+    public int
+	getTaggerBeamWidth ()
+    {
+	return tagger_beam_width;
+    }
+
+
+    /**
+     * Identify this model together with its current tokenizer and
+     * tagger settings, to key cached results which depend on them.
+     */
+
+    public String
+	getAnalysisKey ()
+    {
+	return model_id + ":" + tokenizer_mode + ":" + tagger_mode + ":" + tagger_beam_width;
+    }
+
+
     /**
      * Run a part-of-speech tagger on the sentence token list.
      */
@@ -120,15 +742,104 @@ public abstract class
 
     /**
      * Prepare a stable key for a graph node (stemmed, lemmatized)
-     * from a token.
+     * from a token, memoized since word frequencies are Zipfian.
      */
 
-    public abstract String
+    public String
 	getNodeKey (final String text, final String pos)
         throws Exception
+    {
+	// the key depends only on the token and the first two
+	// characters of its PoS tag
+
+	final String memo_key = ((pos.length() > 2) ? pos.substring(0, 2) : pos) + text;
+	String key = node_key_cache.get(memo_key);
+
+	if (key == null) {
+	    key = buildNodeKey(text, pos);
+	    node_key_cache.put(memo_key, key);
+	}
+
+	return key;
+    }
+
+
+    /**
+     * Build the key for a graph node, for a cache miss in
+     * getNodeKey().
+     */
+
+    protected abstract String
+	buildNodeKey (final String text, final String pos)
+	throws Exception
 	;
 
 
+    /**
+     * Report the hits and misses of the node key cache as gauges in
+     * the given registry.
+     */
+
+    public void
+	registerMetrics (final MetricsRegistry metrics, final String lang_code)
+    {
+	metrics.registerGauge("node_key_cache_hits." + lang_code,
+			      new MetricsRegistry.Gauge() {
+				  public long getValue () {
+				      return node_key_cache.getHits();
+				  }
+			      });
+
+	metrics.registerGauge("node_key_cache_misses." + lang_code,
+			      new MetricsRegistry.Gauge() {
+				  public long getValue () {
+				      return node_key_cache.getMisses();
+				  }
+			      });
+
+	metrics.registerGauge("language_footprint." + lang_code,
+			      new MetricsRegistry.Gauge() {
+				  public long getValue () {
+				      return getFootprint();
+				  }
+			      });
+    }
+
+
+    /**
+     * Remove the gauges added by registerMetrics().
+     */
+
+    public void
+	unregisterMetrics (final MetricsRegistry metrics, final String lang_code)
+    {
+	metrics.unregisterGauge("node_key_cache_hits." + lang_code);
+	metrics.unregisterGauge("node_key_cache_misses." + lang_code);
+	metrics.unregisterGauge("language_footprint." + lang_code);
+    }
+
+
+    /**
+     * Estimate the memory held by the models for this language, in
+     * bytes.
+     */
+
+    public abstract long
+	getFootprint ()
+	;
+
+
+    /**
+     * Fraction of getNodeKey() calls answered from the cache.
+     */
+
+    public double
+	getNodeKeyHitRate ()
+    {
+	return node_key_cache.getHitRate();
+    }
+
+
     /**
      * Determine whether the given PoS tag is relevant to add to the
      * graph.
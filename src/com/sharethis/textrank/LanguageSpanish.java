@@ -34,9 +34,14 @@ package com.sharethis.textrank;
 
 import java.io.File;
 
-import opennlp.tools.lang.spanish.PosTagger;
-import opennlp.tools.lang.spanish.SentenceDetector;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import opennlp.tools.lang.spanish.Tokenizer;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.util.Sequence;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -65,24 +70,120 @@ public class
      * Public definitions.
      */
 
-    public static SentenceDetector splitter_es = null;
-    public static Tokenizer tokenizer_es = null;
-    public static PosTagger tagger_es = null;
-    public static spanishStemmer stemmer_es = null;
+    public final static int TAGGER_BEAM_SIZE = 3;
+    public final static int TAGGER_CACHE_SIZE = 0;
+
+    // abbreviations which keep their period within a sentence,
+    // leaving out those which are also common words, e.g., "no" or
+    // "mar"
+
+    public final static Set<String> ABBREVIATIONS =
+	new HashSet<String>(Arrays.asList(new String[] {
+		    "sr", "sra", "srta", "sres", "dr", "dra", "lic", "ing", "prof", "gral",
+		    "ud", "uds", "vd", "vds", "etc", "pag", "p\u00e1g", "n\u00fam", "av", "avda",
+		    "aprox", "tel", "depto", "ej", "c\u00eda"
+		}));
+
+    public final static String[] TOKENIZER_SAMPLES = {
+	"Dijo que no.",
+	"Vimos el mar.",
+	"Trabaja en Acme Co.",
+	"El Sr. Garc\u00eda lleg\u00f3 ayer.",
+	"Lo vimos en la p\u00e1g. 5 del libro.",
+	"Compramos pan, leche, etc. en la tienda."
+    };
+
+
+    /**
+     * Protected members. The models get loaded ONCE per instance,
+     * which the registry in LanguageModel keeps per resource path,
+     * and then shared read-only across threads.
+     */
+
+    protected volatile Resources resources = null;
+
+
+    /**
+     * Per-thread tools, since the OpenNLP tools and the Snowball
+     * stemmer all keep mutable state between calls; released when
+     * the language gets unloaded.
+     */
+
+    protected final ThreadTools<Tools> tools =
+	new ThreadTools<Tools>() {
+	    protected Tools create () {
+		return new Tools(resources);
+	    }
+	};
 
 
     /**
-     * Constructor. Not quite a Singleton pattern but close enough
-     * given the resources required to be loaded ONCE.
+     * Immutable set of models loaded for this language.
+     */
+
+    protected static class
+	Resources
+    {
+	public final SharedModel splitter_model;
+	public final SharedModel tokenizer_model;
+	public final SharedModel tagger_model;
+
+	public
+	    Resources (final String path)
+	    throws Exception
+	{
+	    splitter_model =
+		SharedModel.loadModel(new File(path, "opennlp/SpanishSent.bin.gz"));
+
+	    tokenizer_model =
+		SharedModel.loadModel(new File(path, "opennlp/SpanishTok.bin.gz"));
+
+	    tagger_model =
+		SharedModel.loadModel(new File(path, "opennlp/SpanishPOS.bin.gz"));
+	}
+    }
+
+
+    /**
+     * Tool instances owned by one thread.
+     */
+
+    protected static class
+	Tools
+    {
+	public final SentenceDetectorME splitter;
+	public final Tokenizer tokenizer;
+	public final BeamTagger tagger;
+	public final spanishStemmer stemmer;
+
+	public
+	    Tools (final Resources res)
+	{
+	    try {
+		splitter = new SentenceDetectorME(res.splitter_model);
+		tokenizer = new Tokenizer(res.tokenizer_model);
+		tagger = new BeamTagger(TAGGER_BEAM_SIZE, TAGGER_CACHE_SIZE, res.tagger_model, null);
+		stemmer = new spanishStemmer();
+	    }
+	    catch (Exception e) {
+		throw new RuntimeException("cannot build Spanish tools", e);
+	    }
+	}
+    }
+
+
+    /**
+     * Constructor. Use LanguageModel.buildLanguage() to load each
+     * resource path ONCE.
      */
 
     public
 	LanguageSpanish (final String path)
 	throws Exception
     {
-	if (splitter_es == null) {
-	    loadResources(path);
-	}
+	loadResources(path);
+	rule_tokenizer = new RuleTokenizer(false, ABBREVIATIONS, Collections.<String>emptySet());
+	tagger_beam_width = TAGGER_BEAM_SIZE;
     }
 
 
@@ -94,17 +195,22 @@ public class
 	loadResources (final String path)
 	throws Exception
     {
-	splitter_es =
-	    new SentenceDetector((new File(path, "opennlp/SpanishSent.bin.gz")).getPath());
+	resources = new Resources(path);
+    }
 
-	tokenizer_es =
-	    new Tokenizer((new File(path, "opennlp/SpanishTok.bin.gz")).getPath());
 
-	tagger_es =
-	    new PosTagger((new File(path, "opennlp/SpanishPOS.bin.gz")).getPath());
+    /**
+     * Estimate the memory held by the models, in bytes.
+     */
+
+    public long
+	getFootprint ()
+    {
+	final Resources res = resources;
 
-	stemmer_es =
-	    new spanishStemmer();
+	return res.splitter_model.getFootprint() +
+	    res.tokenizer_model.getFootprint() +
+	    res.tagger_model.getFootprint();
     }
 
 
@@ -115,7 +221,7 @@ public class
     public String[]
 	splitParagraph (final String text)
     {
-	return splitter_es.sentDetect(text);
+	return tools.get().splitter.sentDetect(text);
     }
 
 
@@ -126,7 +232,11 @@ public class
     public String[]
 	tokenizeSentence (final String text)
     {
-	return tokenizer_es.tokenize(text);
+	if (tokenizer_mode == TokenizerMode.RULES) {
+	    return rule_tokenizer.tokenize(text);
+	}
+
+	return tools.get().tokenizer.tokenize(text);
     }
 
 
@@ -137,7 +247,34 @@ public class
     public String[]
 	tagTokens (final String[] token_list)
     {
-	return tagger_es.tag(token_list);
+	final BeamTagger tagger = tools.get().tagger;
+
+	if (tagger_mode == TaggerMode.BEST) {
+	    return tagger.bestTags(token_list, tagger_beam_width);
+	}
+
+	final Sequence[] sequences = tagger.topKSequences(token_list);
+	final String[] tag_list = new String[token_list.length];
+
+	int i = 0;
+
+	for (Object obj : sequences[0].getOutcomes()) {
+	    tag_list[i] = (String) obj;
+	    i++;
+	}
+
+	return tag_list;
+    }
+
+
+    /**
+     * Sentences which the tokenizer agreement report always checks.
+     */
+
+    public String[]
+	getTokenizerSamples ()
+    {
+	return TOKENIZER_SAMPLES;
     }
 
 
@@ -146,8 +283,8 @@ public class
      * from a token.
      */
 
-    public String
-	getNodeKey (final String text, final String pos)
+    protected String
+	buildNodeKey (final String text, final String pos)
         throws Exception
     {
 	return pos.substring(0, 2) + stemToken(scrubToken(text)).toLowerCase();
@@ -183,9 +320,11 @@ public class
     public String
 	stemToken (final String token)
     {
-	stemmer_es.setCurrent(token);
-	stemmer_es.stem();
+	final spanishStemmer stemmer = tools.get().stemmer;
+
+	stemmer.setCurrent(token);
+	stemmer.stem();
 
-	return stemmer_es.getCurrent();
+	return stemmer.getCurrent();
     }
 }
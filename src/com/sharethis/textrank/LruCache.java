@@ -0,0 +1,241 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Bounded, thread-safe LRU cache, striped across segments which each
+ * evict their least recently used entry once full, and counting its
+ * hits and misses.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    LruCache<K, V>
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(LruCache.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int NUM_SEGMENTS = 16;
+
+
+    /**
+     * One lock-striped segment.
+     */
+
+    protected static class
+	Segment<K, V>
+	extends LinkedHashMap<K, V>
+    {
+	protected final int capacity;
+
+	public
+	    Segment (final int capacity)
+	{
+	    super(16, 0.75F, true);
+	    this.capacity = capacity;
+	}
+
+	protected boolean
+	    removeEldestEntry (final Map.Entry<K, V> eldest)
+	{
+	    return size() > capacity;
+	}
+    }
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final Segment<K, V>[] segments;
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor, holding up to roughly the given number of
+     * entries.
+     */
+
+    @SuppressWarnings("unchecked")
+    public
+	LruCache (final int max_entries)
+    {
+	final int capacity = Math.max(1, max_entries / NUM_SEGMENTS);
+
+	segments = new Segment[NUM_SEGMENTS];
+
+	for (int i = 0; i < NUM_SEGMENTS; i++) {
+	    segments[i] = new Segment<K, V>(capacity);
+	}
+    }
+
+
+    /**
+     * Select the segment for a key.
+     */
+
+    protected Segment<K, V>
+	getSegment (final Object key)
+    {
+	return segments[(key.hashCode() & 0x7fffffff) % NUM_SEGMENTS];
+    }
+
+
+    /**
+     * Lookup a value, or null if it isn't cached.
+     */
+
+    public V
+	get (final K key)
+    {
+	final Segment<K, V> segment = getSegment(key);
+	V value = null;
+
+	synchronized (segment) {
+	    value = segment.get(key);
+	}
+
+	if (value == null) {
+	    misses.incrementAndGet();
+	}
+	else {
+	    hits.incrementAndGet();
+	}
+
+	return value;
+    }
+
+
+    /**
+     * Add a value.
+     */
+
+    public void
+	put (final K key, final V value)
+    {
+	final Segment<K, V> segment = getSegment(key);
+
+	synchronized (segment) {
+	    segment.put(key, value);
+	}
+    }
+
+
+    /**
+     * Number of entries cached.
+     */
+
+    public int
+	size ()
+    {
+	int total = 0;
+
+	for (Segment<K, V> segment : segments) {
+	    synchronized (segment) {
+		total += segment.size();
+	    }
+	}
+
+	return total;
+    }
+
+
+    /**
+     * Number of lookups which found a value.
+     */
+
+    public long
+	getHits ()
+    {
+	return hits.get();
+    }
+
+
+    /**
+     * Number of lookups which missed.
+     */
+
+    public long
+	getMisses ()
+    {
+	return misses.get();
+    }
+
+
+    /**
+     * Fraction of lookups which found a value, or zero before any
+     * lookups.
+     */
+
+    public double
+	getHitRate ()
+    {
+	final long h = hits.get();
+	final long total = h + misses.get();
+
+	return (total == 0L) ? 0.0D : ((double) h / (double) total);
+    }
+
+
+    /**
+     * Drop all of the cached entries.
+     */
+
+    public void
+	clear ()
+    {
+	for (Segment<K, V> segment : segments) {
+	    synchronized (segment) {
+		segment.clear();
+	    }
+	}
+    }
+}
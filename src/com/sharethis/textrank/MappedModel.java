@@ -0,0 +1,410 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+import opennlp.maxent.Context;
+import opennlp.maxent.GISModel;
+import opennlp.maxent.io.SuffixSensitiveGISModelReader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * A maxent model compiled ahead of time into a binary file, which
+ * gets memory mapped rather than parsed: the predicates and their
+ * parameters are looked up in place, so loading is nearly instant,
+ * and the pages are shared between JVMs on the same host.
+ *
+ * The evaluation follows exactly the same arithmetic as the GISModel
+ * which it was compiled from.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    MappedModel
+    extends SharedModel
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(MappedModel.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int MAGIC = 0x54524d4d; // "TRMM"
+    public final static int VERSION = 1;
+    public final static String COMPILED_SUFFIX = ".mmap";
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final StringTable predicates;
+    protected final IntBuffer param_offsets;
+    protected final IntBuffer param_outcomes;
+    protected final DoubleBuffer param_values;
+    protected final long mapped_bytes;
+
+
+    /**
+     * Constructor, reading the model in place from the buffer.
+     */
+
+    protected
+	MappedModel (final ByteBuffer buf, final String[] outcome_names, final int correction_constant, final double correction_param)
+    {
+	super(outcome_names, correction_constant, correction_param);
+
+	mapped_bytes = buf.capacity();
+
+	predicates = new StringTable(buf);
+
+	final int total = buf.getInt();
+
+	param_offsets = StringTable.slice(buf, 4 * (predicates.size() + 1)).asIntBuffer();
+	param_outcomes = StringTable.slice(buf, 4 * total).asIntBuffer();
+	param_values = StringTable.slice(buf, 8 * total).asDoubleBuffer();
+    }
+
+
+    /**
+     * Name of the compiled copy of a model file, e.g., "EnglishSD.bin.gz"
+     * compiles into "EnglishSD.mmap" in the same directory.
+     */
+
+    public static File
+	getCompiledFile (final File file)
+    {
+	String name = file.getName();
+
+	if (name.endsWith(".gz")) {
+	    name = name.substring(0, name.length() - 3);
+	}
+
+	if (name.endsWith(".bin")) {
+	    name = name.substring(0, name.length() - 4);
+	}
+
+	return new File(file.getParentFile(), name + COMPILED_SUFFIX);
+    }
+
+
+    /**
+     * Map a file into memory, read-only.
+     */
+
+    public static ByteBuffer
+	mapFile (final File file)
+	throws IOException
+    {
+	final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+	try {
+	    final FileChannel channel = raf.getChannel();
+
+	    return channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+	}
+	finally {
+	    // the mapping stays valid after closing
+	    raf.close();
+	}
+    }
+
+
+    /**
+     * Factory method, maps a compiled model.
+     */
+
+    public static MappedModel
+	load (final File file)
+	throws IOException
+    {
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("mapping model: " + file);
+	}
+
+	final ByteBuffer buf = mapFile(file);
+
+	if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION)) {
+	    throw new IOException("not a compiled model, or wrong version: " + file);
+	}
+
+	final int correction_constant = buf.getInt();
+	final double correction_param = buf.getDouble();
+	final String[] outcome_names = new StringTable(buf).toArray();
+
+	return new MappedModel(buf, outcome_names, correction_constant, correction_param);
+    }
+
+
+    /**
+     * Reader which keeps the predicate labels, in the same order as
+     * the parameters of the model.
+     */
+
+    protected static class
+	LabelReader
+	extends SuffixSensitiveGISModelReader
+    {
+	public String[] labels = null;
+
+	public
+	    LabelReader (final File file)
+	    throws IOException
+	{
+	    super(file);
+	}
+
+	protected String[]
+	    getPredicates ()
+	    throws IOException
+	{
+	    labels = super.getPredicates();
+	    return labels;
+	}
+    }
+
+
+    /**
+     * Compile a maxent model file, which may be compressed, into the
+     * mappable format. Writes to a temporary file first, so that a
+     * reader never maps a partial file.
+     */
+
+    public static void
+	compile (final File model_file, final File compiled_file)
+	throws IOException
+    {
+	final LabelReader reader = new LabelReader(model_file);
+	final GISModel model = reader.getModel();
+	final Object[] data = model.getDataStructures();
+
+	final Context[] params = (Context[]) data[0];
+	final String[] outcome_names = (String[]) data[2];
+	final String[] labels = reader.labels;
+
+	final File tmp_file = new File(compiled_file.getPath() + ".tmp");
+	final DataOutputStream out =
+	    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp_file), 65536));
+
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    out.writeInt(((Integer) data[3]).intValue());
+	    out.writeDouble(((Double) data[4]).doubleValue());
+
+	    StringTable.write(out, outcome_names);
+	    StringTable.write(out, labels);
+
+	    // parameters for each predicate, as one run of outcomes
+	    // and one run of values
+
+	    int total = 0;
+
+	    for (Context c : params) {
+		total += c.getOutcomes().length;
+	    }
+
+	    out.writeInt(total);
+
+	    int offset = 0;
+
+	    for (Context c : params) {
+		out.writeInt(offset);
+		offset += c.getOutcomes().length;
+	    }
+
+	    out.writeInt(offset);
+
+	    for (Context c : params) {
+		for (int oid : c.getOutcomes()) {
+		    out.writeInt(oid);
+		}
+	    }
+
+	    for (Context c : params) {
+		for (double value : c.getParameters()) {
+		    out.writeDouble(value);
+		}
+	    }
+	}
+	finally {
+	    out.close();
+	}
+
+	if (!tmp_file.renameTo(compiled_file)) {
+	    throw new IOException("cannot rename " + tmp_file + " to " + compiled_file);
+	}
+    }
+
+
+    /**
+     * Lookup the index of a predicate in place.
+     */
+
+    protected int
+	getPredicateIndex (final String predicate)
+    {
+	return predicates.indexOf(predicate);
+    }
+
+
+    /**
+     * Add the parameters of a predicate, read in place.
+     */
+
+    protected void
+	addParameters (final int ci, final double[] outsums, final int[] numfeats)
+    {
+	final int end = param_offsets.get(ci + 1);
+
+	for (int j = param_offsets.get(ci); j < end; j++) {
+	    final int oid = param_outcomes.get(j);
+
+	    numfeats[oid]++;
+	    outsums[oid] += param_values.get(j);
+	}
+    }
+
+
+    /**
+     * The compiled model is mapped rather than held on the heap, so
+     * count its size in bytes.
+     */
+
+    public long
+	getFootprint ()
+    {
+	return mapped_bytes;
+    }
+
+
+    /**
+     * Return the same data structures as the GISModel which this was
+     * compiled from, copying the parameters out of the mapped file
+     * onto the heap on each call, so it's best avoided on hot paths.
+     */
+
+    public Object[]
+	getDataStructures ()
+    {
+	final String[] labels = predicates.toArray();
+	final Context[] params = new Context[labels.length];
+
+	for (int ci = 0; ci < params.length; ci++) {
+	    final int start = param_offsets.get(ci);
+	    final int[] outcomes = new int[param_offsets.get(ci + 1) - start];
+	    final double[] values = new double[outcomes.length];
+
+	    for (int j = 0; j < outcomes.length; j++) {
+		outcomes[j] = param_outcomes.get(start + j);
+		values[j] = param_values.get(start + j);
+	    }
+
+	    params[ci] = new Context(outcomes, values);
+	}
+
+	// let GISModel build its predicate index, so the structures match
+
+	return new GISModel(params, labels, outcome_names, (int) correction_constant, correction_param).getDataStructures();
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // command line interface
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Main entry point, the one-time compile step for the OpenNLP
+     * models and tag dictionary of a language.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final File dir = new File(res_path + "/" + lang_code, "opennlp");
+	final File[] files = dir.listFiles();
+
+	if (files == null) {
+	    throw new IOException("no models in " + dir);
+	}
+
+	for (File file : files) {
+	    final long start_time = System.currentTimeMillis();
+	    File compiled = null;
+
+	    if (file.getName().endsWith(".bin.gz") || file.getName().endsWith(".bin")) {
+		compiled = getCompiledFile(file);
+		compile(file, compiled);
+	    }
+	    else if ("tagdict".equals(file.getName())) {
+		compiled = MappedTagDictionary.getCompiledFile(file);
+		MappedTagDictionary.compile(file, compiled, false);
+	    }
+	    else {
+		continue;
+	    }
+
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("compiled " + file + " into " + compiled + " in " + (System.currentTimeMillis() - start_time) + " ms");
+	    }
+	}
+    }
+}
@@ -0,0 +1,294 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.TObjectIntHashMap;
+
+import opennlp.tools.postag.POSDictionary;
+import opennlp.tools.postag.TagDictionary;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * A POS tag dictionary compiled ahead of time into a binary file,
+ * which gets memory mapped rather than parsed, answering the same as
+ * the POSDictionary which reads the text file.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    MappedTagDictionary
+    implements TagDictionary
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(MappedTagDictionary.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int MAGIC = 0x54525444; // "TRTD"
+    public final static int VERSION = 1;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final boolean case_sensitive;
+    protected final StringTable words;
+    protected final String[] tag_names;
+    protected final IntBuffer tag_offsets;
+    protected final IntBuffer tag_ids;
+    protected final long mapped_bytes;
+
+
+    /**
+     * Constructor, reading the dictionary in place from the buffer.
+     */
+
+    protected
+	MappedTagDictionary (final ByteBuffer buf, final boolean case_sensitive)
+    {
+	this.case_sensitive = case_sensitive;
+	this.mapped_bytes = buf.capacity();
+
+	tag_names = new StringTable(buf).toArray();
+	words = new StringTable(buf);
+
+	final int total = buf.getInt();
+
+	tag_offsets = StringTable.slice(buf, 4 * (words.size() + 1)).asIntBuffer();
+	tag_ids = StringTable.slice(buf, 4 * total).asIntBuffer();
+    }
+
+
+    /**
+     * Name of the compiled copy of a tag dictionary.
+     */
+
+    public static File
+	getCompiledFile (final File file)
+    {
+	return new File(file.getParentFile(), file.getName() + MappedModel.COMPILED_SUFFIX);
+    }
+
+
+    /**
+     * Factory method, loads a tag dictionary from its text file, or
+     * maps the compiled copy instead, if there's an up-to-date one.
+     */
+
+    public static TagDictionary
+	loadDictionary (final File file, final boolean case_sensitive)
+	throws IOException
+    {
+	final File compiled = getCompiledFile(file);
+
+	if (compiled.exists() && (compiled.lastModified() >= file.lastModified())) {
+	    try {
+		return load(compiled, case_sensitive);
+	    }
+	    catch (IOException e) {
+		LOG.warn("cannot map compiled tag dictionary " + compiled + ", loading " + file, e);
+	    }
+	}
+
+	return new POSDictionary(file.getPath(), case_sensitive);
+    }
+
+
+    /**
+     * Factory method, maps a compiled tag dictionary.
+     */
+
+    public static MappedTagDictionary
+	load (final File file, final boolean case_sensitive)
+	throws IOException
+    {
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("mapping tag dictionary: " + file);
+	}
+
+	final ByteBuffer buf = MappedModel.mapFile(file);
+
+	if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION)) {
+	    throw new IOException("not a compiled tag dictionary, or wrong version: " + file);
+	}
+	else if ((buf.getInt() != 0) != case_sensitive) {
+	    throw new IOException("compiled tag dictionary has the wrong case sensitivity: " + file);
+	}
+
+	return new MappedTagDictionary(buf, case_sensitive);
+    }
+
+
+    /**
+     * Compile a tag dictionary text file, one word per line followed
+     * by its tags, parsed the same as POSDictionary: the last line
+     * for a word wins.
+     */
+
+    public static void
+	compile (final File file, final File compiled_file, final boolean case_sensitive)
+	throws IOException
+    {
+	final Map<String, String[]> dictionary = new LinkedHashMap<String, String[]>();
+	final BufferedReader reader = new BufferedReader(new FileReader(file));
+
+	try {
+	    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+		final String[] parts = line.split(" ");
+		final String[] tags = new String[parts.length - 1];
+
+		System.arraycopy(parts, 1, tags, 0, tags.length);
+		dictionary.put(parts[0], tags);
+	    }
+	}
+	finally {
+	    reader.close();
+	}
+
+	// number the distinct tags
+
+	final TObjectIntHashMap<String> tag_index = new TObjectIntHashMap<String>();
+	final List<String> tag_list = new ArrayList<String>();
+	int total = 0;
+
+	for (String[] tags : dictionary.values()) {
+	    for (String tag : tags) {
+		if (!tag_index.containsKey(tag)) {
+		    tag_index.put(tag, tag_list.size());
+		    tag_list.add(tag);
+		}
+	    }
+
+	    total += tags.length;
+	}
+
+	final File tmp_file = new File(compiled_file.getPath() + ".tmp");
+	final DataOutputStream out =
+	    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp_file), 65536));
+
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    out.writeInt(case_sensitive ? 1 : 0);
+
+	    StringTable.write(out, tag_list.toArray(new String[tag_list.size()]));
+	    StringTable.write(out, dictionary.keySet().toArray(new String[dictionary.size()]));
+
+	    out.writeInt(total);
+
+	    int offset = 0;
+
+	    for (String[] tags : dictionary.values()) {
+		out.writeInt(offset);
+		offset += tags.length;
+	    }
+
+	    out.writeInt(offset);
+
+	    for (String[] tags : dictionary.values()) {
+		for (String tag : tags) {
+		    out.writeInt(tag_index.get(tag));
+		}
+	    }
+	}
+	finally {
+	    out.close();
+	}
+
+	if (!tmp_file.renameTo(compiled_file)) {
+	    throw new IOException("cannot rename " + tmp_file + " to " + compiled_file);
+	}
+    }
+
+
+    /**
+     * Size of the mapped file, in bytes.
+     */
+
+    public long
+	getFootprint ()
+    {
+	return mapped_bytes;
+    }
+
+
+    /**
+     * Lookup the tags for a word, or null if it's not in the
+     * dictionary.
+     */
+
+    public String[]
+	getTags (final String word)
+    {
+	final int i = words.indexOf(case_sensitive ? word : word.toLowerCase());
+
+	if (i < 0) {
+	    return null;
+	}
+
+	final int start = tag_offsets.get(i);
+	final String[] tags = new String[tag_offsets.get(i + 1) - start];
+
+	for (int j = 0; j < tags.length; j++) {
+	    tags[j] = tag_names[tag_ids.get(start + j)];
+	}
+
+	return tags;
+    }
+}
@@ -75,11 +75,7 @@ public class
     {
 	this.value = value;
 
-	this.metric = Math.sqrt(((1.0D * link_rank * link_rank) +
-				 (0.5D * count_rank * count_rank) +
-				 (1.5D * synset_rank * synset_rank)
-				 ) / 3.0D
-				);
+	this.metric = calcMetric(link_rank, count_rank, synset_rank);
 
 	this.link_rank = MathUtils.round(link_rank, 2);
 	this.count_rank = MathUtils.round(count_rank, 2);
@@ -91,6 +87,21 @@ public class
     }
 
 
+    /**
+     * Calculate the overall metric from its components, weighted.
+     */
+
+    public static double
+	calcMetric (final double link_rank, final double count_rank, final double synset_rank)
+    {
+	return Math.sqrt(((1.0D * link_rank * link_rank) +
+			  (0.5D * count_rank * count_rank) +
+			  (1.5D * synset_rank * synset_rank)
+			  ) / 3.0D
+			 );
+    }
+
+
     /**
      * Compare method for sort ordering.
      */
@@ -110,6 +121,24 @@ public class
     }
 
 
+    /**
+     * Copy with a plain value holding just the text, so that it no
+     * longer refers back into the graph.
+     */
+
+    public MetricVector
+	detach ()
+    {
+	final NodeValue text_value = new NodeValue();
+	text_value.text = value.text;
+
+	final MetricVector mv = new MetricVector(text_value, link_rank, count_rank, synset_rank);
+	mv.metric = metric;
+
+	return mv;
+    }
+
+
     /**
      * Serialize as text.
      */
@@ -129,4 +158,21 @@ public class
 
 	return sb.toString();
     }
+
+
+    /**
+     * Serialize as a JSON object.
+     */
+
+    public StringBuilder
+	renderJson (final StringBuilder sb)
+    {
+	Json.quote(sb.append("{\"text\":"), value.text);
+	Json.number(sb.append(",\"metric\":"), metric);
+	Json.number(sb.append(",\"link_rank\":"), link_rank);
+	Json.number(sb.append(",\"count_rank\":"), count_rank);
+	Json.number(sb.append(",\"synset_rank\":"), synset_rank);
+
+	return sb.append('}');
+    }
 }
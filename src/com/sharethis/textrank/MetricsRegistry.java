@@ -0,0 +1,408 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Registry of counters and histograms for monitoring TextRank, e.g.,
+ * the nanosecond timings per pass. Read it in-process through
+ * snapshot(), or through JMX as the attributes of an MBean. Plug in
+ * another instance, or a subclass which forwards elsewhere, with
+ * TextRank.setMetrics().
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    MetricsRegistry
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(MetricsRegistry.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static String JMX_NAME = "com.sharethis.textrank:type=Metrics";
+
+    public final static String CONSTRUCT_GRAPH = "construct_graph";
+    public final static String BASIC_TEXTRANK = "basic_textrank";
+    public final static String AUGMENT_GRAPH = "augment_graph";
+    public final static String NGRAM_TEXTRANK = "ngram_textrank";
+    public final static String NORMALIZE_RANKS = "normalize_ranks";
+
+    public final static String GRAPH_SIZE = "graph_size";
+    public final static String ITERATIONS = "iterations";
+    public final static String DOCUMENTS = "documents";
+    public final static String SENTENCE_CACHE_HITS = "sentence_cache_hits";
+    public final static String SENTENCE_CACHE_MISSES = "sentence_cache_misses";
+    public final static String WORDNET_LOOKUPS = "wordnet_lookups";
+    public final static String WORDNET_COVERAGE = "wordnet_coverage_pct";
+    public final static String TIMEOUTS = "timeouts";
+    public final static String REJECTED = "rejected";
+
+
+    /**
+     * Value sampled whenever a snapshot is taken, e.g., the counters
+     * which a cache keeps itself.
+     */
+
+    public static interface
+	Gauge
+    {
+	public long getValue ();
+    }
+
+
+    /**
+     * Protected members.
+     */
+
+    protected static MetricsRegistry default_registry = null;
+
+    protected final ConcurrentMap<String, AtomicLong> counters =
+	new ConcurrentHashMap<String, AtomicLong>();
+
+    protected final ConcurrentMap<String, Histogram> histograms =
+	new ConcurrentHashMap<String, Histogram>();
+
+    protected final ConcurrentMap<String, Gauge> gauges =
+	new ConcurrentHashMap<String, Gauge>();
+
+
+    /**
+     * Access the registry shared by default, registering it with the
+     * platform MBean server on first use.
+     */
+
+    public static synchronized MetricsRegistry
+	getDefault ()
+    {
+	if (default_registry == null) {
+	    default_registry = new MetricsRegistry();
+	    default_registry.registerMBean(JMX_NAME);
+	}
+
+	return default_registry;
+    }
+
+
+    /**
+     * Add to a counter.
+     */
+
+    public void
+	increment (final String name, final long delta)
+    {
+	AtomicLong counter = counters.get(name);
+
+	if (counter == null) {
+	    final AtomicLong created = new AtomicLong();
+	    counter = counters.putIfAbsent(name, created);
+
+	    if (counter == null) {
+		counter = created;
+	    }
+	}
+
+	counter.addAndGet(delta);
+    }
+
+
+    /**
+     * Current value of a counter.
+     */
+
+    public long
+	getCount (final String name)
+    {
+	final AtomicLong counter = counters.get(name);
+
+	return (counter == null) ? 0L : counter.get();
+    }
+
+
+    /**
+     * Access a histogram by name, creating it if needed.
+     */
+
+    public Histogram
+	getHistogram (final String name)
+    {
+	Histogram histogram = histograms.get(name);
+
+	if (histogram == null) {
+	    final Histogram created = new Histogram();
+	    histogram = histograms.putIfAbsent(name, created);
+
+	    if (histogram == null) {
+		histogram = created;
+	    }
+	}
+
+	return histogram;
+    }
+
+
+    /**
+     * Record one value in a histogram.
+     */
+
+    public void
+	record (final String name, final long value)
+    {
+	getHistogram(name).record(value);
+    }
+
+
+    /**
+     * Record the nanoseconds elapsed since the given System.nanoTime()
+     * in the timer for a pass.
+     */
+
+    public void
+	recordTime (final String pass, final long start_time)
+    {
+	record(pass + "_ns", System.nanoTime() - start_time);
+    }
+
+
+    /**
+     * Register a gauge, replacing any other with the same name.
+     */
+
+    public void
+	registerGauge (final String name, final Gauge gauge)
+    {
+	gauges.put(name, gauge);
+    }
+
+
+    /**
+     * Remove a gauge, e.g., once the object it reads goes away.
+     */
+
+    public void
+	unregisterGauge (final String name)
+    {
+	gauges.remove(name);
+    }
+
+
+    /**
+     * Take a snapshot of all counters and gauges, plus the count, mean, p50,
+     * p99 and max of each histogram, flattened into one sorted map.
+     */
+
+    public SortedMap<String, Long>
+	snapshot ()
+    {
+	final SortedMap<String, Long> result = new TreeMap<String, Long>();
+
+	for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+	    result.put(entry.getKey(), entry.getValue().get());
+	}
+
+	for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+	    result.put(entry.getKey(), entry.getValue().getValue());
+	}
+
+	for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+	    final String name = entry.getKey();
+	    final Histogram histogram = entry.getValue();
+
+	    result.put(name + ".count", histogram.getCount());
+	    result.put(name + ".mean", histogram.getMean());
+	    result.put(name + ".p50", histogram.getPercentile(0.50D));
+	    result.put(name + ".p99", histogram.getPercentile(0.99D));
+	    result.put(name + ".max", histogram.getMax());
+	}
+
+	return result;
+    }
+
+
+    /**
+     * Clear all counters and histograms.
+     */
+
+    public void
+	reset ()
+    {
+	for (AtomicLong counter : counters.values()) {
+	    counter.set(0L);
+	}
+
+	for (Histogram histogram : histograms.values()) {
+	    histogram.reset();
+	}
+    }
+
+
+    /**
+     * Register this registry as an MBean under the given name,
+     * logging rather than failing if JMX is unavailable.
+     */
+
+    public void
+	registerMBean (final String name)
+    {
+	try {
+	    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	    final ObjectName object_name = new ObjectName(name);
+
+	    if (!server.isRegistered(object_name)) {
+		server.registerMBean(new MetricsMBean(this), object_name);
+	    }
+	}
+	catch (Exception e) {
+	    LOG.warn("could not register metrics MBean " + name, e);
+	}
+    }
+
+
+    /**
+     * Exposes the snapshot through JMX, one read-only attribute per
+     * entry, along with a reset operation.
+     */
+
+    protected static class
+	MetricsMBean
+	implements DynamicMBean
+    {
+	protected final MetricsRegistry registry;
+
+	public
+	    MetricsMBean (final MetricsRegistry registry)
+	{
+	    this.registry = registry;
+	}
+
+	public Object
+	    getAttribute (final String name)
+	    throws AttributeNotFoundException
+	{
+	    final Long value = registry.snapshot().get(name);
+
+	    if (value == null) {
+		throw new AttributeNotFoundException(name);
+	    }
+
+	    return value;
+	}
+
+	public AttributeList
+	    getAttributes (final String[] names)
+	{
+	    final SortedMap<String, Long> snapshot = registry.snapshot();
+	    final AttributeList result = new AttributeList();
+
+	    for (String name : names) {
+		final Long value = snapshot.get(name);
+
+		if (value != null) {
+		    result.add(new Attribute(name, value));
+		}
+	    }
+
+	    return result;
+	}
+
+	public void
+	    setAttribute (final Attribute attribute)
+	    throws AttributeNotFoundException
+	{
+	    throw new AttributeNotFoundException("read-only: " + attribute.getName());
+	}
+
+	public AttributeList
+	    setAttributes (final AttributeList attributes)
+	{
+	    return new AttributeList();
+	}
+
+	public Object
+	    invoke (final String action, final Object[] params, final String[] signature)
+	{
+	    if ("reset".equals(action)) {
+		registry.reset();
+	    }
+
+	    return null;
+	}
+
+	public MBeanInfo
+	    getMBeanInfo ()
+	{
+	    final SortedMap<String, Long> snapshot = registry.snapshot();
+	    final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+	    int i = 0;
+
+	    for (String name : snapshot.keySet()) {
+		attributes[i++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+	    }
+
+	    final MBeanOperationInfo[] operations = new MBeanOperationInfo[] {
+		new MBeanOperationInfo("reset", "clear all metrics", null, "void", MBeanOperationInfo.ACTION)
+	    };
+
+	    return new MBeanInfo(MetricsRegistry.class.getName(), "TextRank metrics", attributes, null, operations, null);
+	}
+    }
+}
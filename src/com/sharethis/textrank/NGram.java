@@ -32,9 +32,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.sharethis.textrank;
 
+import gnu.trove.TIntArrayList;
+
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -151,14 +152,16 @@ public class
      */
 
     public static NGram
-	buildNGram (final Graph ngrams, final Sentence s, final LinkedList<Integer> token_span, final double max_rank)
+	buildNGram (final Graph ngrams, final Sentence s, final TIntArrayList token_span, final double max_rank)
 	throws Exception
     {
 	final HashSet<Node> nodes = new HashSet<Node>();
 	final StringBuffer sb_key = new StringBuffer("NGram");
 	final StringBuffer sb_text = new StringBuffer();
 
-	for (int i : token_span) {
+	for (int j = 0; j < token_span.size(); j++) {
+	    final int i = token_span.get(j);
+
 	    if (!"".equals(s.token_list[i])) {
 		nodes.add(s.node_list[i]);
 		sb_key.append(s.node_list[i].key);
@@ -200,7 +203,7 @@ public class
 	throws Exception
     {
 	final Graph ngrams = new Graph();
-	final LinkedList<Integer> token_span = new LinkedList<Integer>();
+	final TIntArrayList token_span = new TIntArrayList();
 
 	for (Sentence s : cache.values()) {
 	    boolean span_marked = false;
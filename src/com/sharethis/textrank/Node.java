@@ -32,14 +32,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.sharethis.textrank;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import org.apache.commons.math.util.MathUtils;
-
 
 /**
  * Implements a node in the TextRank graph, denoting some noun or
@@ -58,15 +53,33 @@ public class
         LogFactory.getLog(Node.class.getName());
 
 
+    /**
+     * Public definitions.
+     */
+
+    // heap estimates, assuming compressed object pointers: the node
+    // itself, plus its entry in the graph's TreeMap
+
+    public final static long NODE_BYTES = 40L;
+    public final static long GRAPH_ENTRY_BYTES = 40L;
+
+    // the key: a String plus the header of its byte array, then one
+    // byte per char when every char fits in Latin-1 (compact
+    // strings), otherwise two
+
+    public final static long KEY_STRING_BYTES = 40L;
+
+
     /**
      * Public members.
      */
 
-    public HashSet<Node> edges = new HashSet<Node>();
+    public final EdgeSet edges = new EdgeSet();
     public double rank = 0.0D;
     public String key = null;
     public boolean marked = false;
     public NodeValue value = null;
+    public int row = -1;
 
 
     /**
@@ -101,6 +114,25 @@ public class
     }
 
 
+    /**
+     * Estimate the heap held by the key.
+     */
+
+    public long
+	getKeyBytes ()
+    {
+	final int len = key.length();
+
+	for (int i = 0; i < len; i++) {
+	    if (key.charAt(i) > 0xFF) {
+		return KEY_STRING_BYTES + 2L * len;
+	    }
+	}
+
+	return KEY_STRING_BYTES + len;
+    }
+
+
     /**
      * Connect two nodes with a bi-directional arc in the graph.
      */
@@ -213,40 +245,4 @@ public class
 
 	return adjusted_rank;
     }
-
-
-    /**
-     * Traverse the graph, serializing out the nodes and edges.
-     */
-
-    public void
-	serializeGraph (final Set<String> entries)
-    {
-	StringBuilder sb = new StringBuilder();
-
-	// emit text and ranks vector
-
-	marked = true;
-
-	sb.append("node").append('\t');
-	sb.append(getId()).append('\t');
-	sb.append(value.getDescription()).append('\t');
-	sb.append(MathUtils.round(rank, 3));
-	entries.add(sb.toString());
-
-	// emit edges
-
-	for (Node n : edges) {
-	    sb = new StringBuilder();
-	    sb.append("edge").append('\t');
-	    sb.append(getId()).append('\t');
-	    sb.append(n.getId());
-	    entries.add(sb.toString());
-
-	    if (!n.marked) {
-		// tail recursion on child
-		n.serializeGraph(entries);
-	    }
-	}
-    }
 }
@@ -0,0 +1,450 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * A frozen, array-based view of the graph, laid out in compressed
+ * sparse row form, so that the TextRank power iteration can run over
+ * primitive arrays instead of chasing Node references.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    RankMatrix
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(RankMatrix.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int ROWS_PER_TASK = 4096;
+
+
+    /**
+     * Public members.
+     */
+
+    public int num_ranked = 0;
+    public Node[] node_list = null;
+    public int[] offset = null;
+    public int[] neighbor = null;
+    public double[] inv_degree = null;
+    public double[] rank = null;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected double[] contrib = null;
+    protected double[] delta = null;
+    protected double damping_factor = 0.0D;
+
+
+    /**
+     * Constructor. Index the given nodes as rows 0..N-1, followed by
+     * any nodes outside the graph which they link to; the latter
+     * contribute rank but never get updated.
+     */
+
+    public
+	RankMatrix (final Node[] graph_nodes)
+    {
+	final ArrayList<Node> external = new ArrayList<Node>();
+	int num_edges = 0;
+
+	num_ranked = graph_nodes.length;
+
+	for (int i = 0; i < num_ranked; i++) {
+	    graph_nodes[i].row = i;
+	    num_edges += graph_nodes[i].edges.size();
+	}
+
+	// lay out the adjacency lists for the ranked rows, assigning
+	// indexes to any external neighbors along the way
+
+	offset = new int[num_ranked + 1];
+	neighbor = new int[num_edges];
+
+	int j = 0;
+
+	for (int i = 0; i < num_ranked; i++) {
+	    offset[i] = j;
+
+	    for (Node n2 : graph_nodes[i].edges) {
+		final int r = n2.row;
+		final boolean indexed =
+		    ((r >= 0) && (r < num_ranked) && (graph_nodes[r] == n2)) ||
+		    ((r >= num_ranked) && (r - num_ranked < external.size()) && (external.get(r - num_ranked) == n2));
+
+		if (!indexed) {
+		    n2.row = num_ranked + external.size();
+		    external.add(n2);
+		}
+
+		neighbor[j++] = n2.row;
+	    }
+	}
+
+	offset[num_ranked] = j;
+
+	// load the rank vector and inverse degrees
+
+	final int num_nodes = num_ranked + external.size();
+
+	node_list = new Node[num_nodes];
+	inv_degree = new double[num_nodes];
+	rank = new double[num_nodes];
+
+	for (int i = 0; i < num_nodes; i++) {
+	    final Node n = (i < num_ranked) ? graph_nodes[i] : external.get(i - num_ranked);
+
+	    node_list[i] = n;
+	    rank[i] = n.rank;
+	    inv_degree[i] = n.edges.isEmpty() ? 0.0D : 1.0D / (double) n.edges.size();
+	}
+    }
+
+
+    /**
+     * Run through N iterations of the power method, or until the
+     * standard error converges below the given threshold, returning
+     * the number of iterations used. Checks the deadline, if any,
+     * before each iteration.
+     */
+
+    public int
+	iterate (final int max_iterations, final double damping_factor, final double threshold, final Deadline deadline)
+	throws TextRankTimeoutException
+    {
+	final double[] next_rank = new double[num_ranked];
+
+	contrib = new double[rank.length];
+	delta = new double[num_ranked];
+
+	int k = 0;
+
+	while (k < max_iterations) {
+	    if (deadline != null) {
+		deadline.check("iterate_graph");
+	    }
+
+	    // each node passes along its rank, split over its edges
+
+	    for (int i = 0; i < rank.length; i++) {
+		contrib[i] = rank[i] * inv_degree[i];
+	    }
+
+	    // calculate the next rank for each node
+
+	    for (int i = 0; i < num_ranked; i++) {
+		double sum = 0.0D;
+
+		for (int j = offset[i]; j < offset[i + 1]; j++) {
+		    sum += contrib[neighbor[j]];
+		}
+
+		next_rank[i] = (sum * damping_factor) + (1.0D - damping_factor);
+		delta[i] = Math.abs(rank[i] - next_rank[i]);
+	    }
+
+	    System.arraycopy(next_rank, 0, rank, 0, num_ranked);
+
+	    final double standard_error = standardError(delta);
+	    k++;
+
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("iteration: " + (k - 1) + " error: " + standard_error);
+	    }
+
+	    if (standard_error < threshold) {
+		break;
+	    }
+	}
+
+	return k;
+    }
+
+
+    /**
+     * Same as iterate(), except each iteration is partitioned by
+     * rows across the given fork-join pool, including the reduction
+     * for the standard error.
+     */
+
+    public int
+	iterateParallel (final ForkJoinPool pool, final int max_iterations, final double damping_factor, final double threshold, final Deadline deadline)
+	throws TextRankTimeoutException
+    {
+	this.damping_factor = damping_factor;
+
+	contrib = new double[rank.length];
+	delta = new double[num_ranked];
+
+	int k = 0;
+
+	while (k < max_iterations) {
+	    if (deadline != null) {
+		deadline.check("iterate_graph");
+	    }
+
+	    // each node passes along its rank, split over its edges;
+	    // then calculate the next rank for each node in place,
+	    // since only contrib gets read
+
+	    pool.invoke(new ContribTask(0, rank.length));
+
+	    final Moments moments = pool.invoke(new RankTask(0, num_ranked));
+	    final double standard_error = moments.getStandardError();
+	    k++;
+
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("iteration: " + (k - 1) + " error: " + standard_error);
+	    }
+
+	    if (standard_error < threshold) {
+		break;
+	    }
+	}
+
+	return k;
+    }
+
+
+    /**
+     * Task which calculates the contribution of a range of nodes.
+     */
+
+    protected class
+	ContribTask
+	extends RecursiveAction
+    {
+	protected final int start;
+	protected final int end;
+
+	public
+	    ContribTask (final int start, final int end)
+	{
+	    this.start = start;
+	    this.end = end;
+	}
+
+	protected void
+	    compute ()
+	{
+	    if (end - start <= ROWS_PER_TASK) {
+		for (int i = start; i < end; i++) {
+		    contrib[i] = rank[i] * inv_degree[i];
+		}
+	    }
+	    else {
+		final int mid = (start + end) >>> 1;
+
+		invokeAll(new ContribTask(start, mid), new ContribTask(mid, end));
+	    }
+	}
+    }
+
+
+    /**
+     * Task which ranks a range of rows, returning the moments of
+     * the changes in rank.
+     */
+
+    protected class
+	RankTask
+	extends RecursiveTask<Moments>
+    {
+	protected final int start;
+	protected final int end;
+
+	public
+	    RankTask (final int start, final int end)
+	{
+	    this.start = start;
+	    this.end = end;
+	}
+
+	protected Moments
+	    compute ()
+	{
+	    if (end - start <= ROWS_PER_TASK) {
+		double sum_delta = 0.0D;
+
+		for (int i = start; i < end; i++) {
+		    double sum = 0.0D;
+
+		    for (int j = offset[i]; j < offset[i + 1]; j++) {
+			sum += contrib[neighbor[j]];
+		    }
+
+		    final double next_rank = (sum * damping_factor) + (1.0D - damping_factor);
+
+		    delta[i] = Math.abs(rank[i] - next_rank);
+		    rank[i] = next_rank;
+		    sum_delta += delta[i];
+		}
+
+		return new Moments(delta, start, end, sum_delta);
+	    }
+	    else {
+		final int mid = (start + end) >>> 1;
+		final RankTask left = new RankTask(start, mid);
+
+		left.fork();
+
+		final Moments right = new RankTask(mid, end).compute();
+
+		return left.join().merge(right);
+	    }
+	}
+    }
+
+
+    /**
+     * Count, mean and sum of squared deviations for a range of
+     * values, which merge pairwise (Chan et al.) so that the
+     * variance reduces in parallel.
+     */
+
+    protected static class
+	Moments
+    {
+	protected long n = 0L;
+	protected double mean = 0.0D;
+	protected double m2 = 0.0D;
+
+	public
+	    Moments (final double[] values, final int start, final int end, final double sum)
+	{
+	    n = end - start;
+
+	    if (n > 0L) {
+		mean = sum / (double) n;
+
+		for (int i = start; i < end; i++) {
+		    final double dev = values[i] - mean;
+		    m2 += dev * dev;
+		}
+	    }
+	}
+
+	public Moments
+	    merge (final Moments that)
+	{
+	    final long total = this.n + that.n;
+
+	    if (total > 0L) {
+		final double dev = that.mean - this.mean;
+
+		m2 = this.m2 + that.m2 + (dev * dev * (double) this.n * (double) that.n / (double) total);
+		mean = this.mean + (dev * (double) that.n / (double) total);
+		n = total;
+	    }
+
+	    return this;
+	}
+
+	public double
+	    getStandardError ()
+	{
+	    if (n < 2L) {
+		return (n == 0L) ? Double.NaN : 0.0D;
+	    }
+
+	    return Math.sqrt(m2 / (double) (n - 1L)) / Math.sqrt((double) n);
+	}
+    }
+
+
+    /**
+     * Write the ranks back into the graph nodes.
+     */
+
+    public void
+	writeRanks ()
+    {
+	for (int i = 0; i < num_ranked; i++) {
+	    node_list[i].rank = rank[i];
+	}
+    }
+
+
+    /**
+     * Calculate the standard error of the mean for the given values,
+     * based on the sample standard deviation.
+     */
+
+    public static double
+	standardError (final double[] values)
+    {
+	final int n = values.length;
+
+	if (n < 2) {
+	    return (n == 0) ? Double.NaN : 0.0D;
+	}
+
+	double sum = 0.0D;
+
+	for (int i = 0; i < n; i++) {
+	    sum += values[i];
+	}
+
+	final double mean = sum / (double) n;
+	double sum_sq = 0.0D;
+
+	for (int i = 0; i < n; i++) {
+	    final double dev = values[i] - mean;
+	    sum_sq += dev * dev;
+	}
+
+	return Math.sqrt(sum_sq / (double) (n - 1)) / Math.sqrt((double) n);
+    }
+}
@@ -0,0 +1,422 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import com.sharethis.common.IOUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * A rule-based tokenizer which makes a single pass over the chars of
+ * a sentence, as a faster alternative to the maxent tokenizers for
+ * text which doesn't need a statistical model, e.g., crawled web
+ * pages. It splits on whitespace and punctuation, splits off the
+ * language's contractions and sentence-final periods, but keeps its
+ * abbreviations, numbers, hyphenated words and URLs whole. Since the
+ * text has already been split into sentences, a period at the end
+ * always ends the sentence, even after an abbreviation.
+ *
+ * When normalizing, it also emits the tokens the same way that
+ * LanguageEnglish post-processes the maxent tokens: lower case,
+ * without double quotes.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    RuleTokenizer
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(RuleTokenizer.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static String PUNCTUATION = "()[]{},;:!?\"|<>\u00bf\u00a1\u201c\u201d\u2018\u2026";
+    public final static String NEGATION = "n't";
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final boolean normalize;
+    protected final Set<String> abbreviations;
+    protected final Set<String> contractions;
+
+
+    /**
+     * Constructor, given the lower case abbreviations of a language,
+     * without their periods, and its contractions, without their
+     * apostrophes, e.g., "ve" for "'ve", or NEGATION for "n't".
+     */
+
+    public
+	RuleTokenizer (final boolean normalize, final Set<String> abbreviations, final Set<String> contractions)
+    {
+	this.normalize = normalize;
+	this.abbreviations = abbreviations;
+	this.contractions = contractions;
+    }
+
+
+    /**
+     * Tokenize the sentence text into an array of tokens.
+     */
+
+    public String[]
+	tokenize (final String text)
+    {
+	final char[] c = text.toCharArray();
+	final char[] buf = new char[c.length + 1];
+	final List<String> token_list = new ArrayList<String>();
+
+	int len = 0;
+	int dots = 0;
+	int i = 0;
+	int last = c.length - 1;
+
+	while ((last >= 0) && Character.isWhitespace(c[last])) {
+	    last--;
+	}
+
+	while (i < c.length) {
+	    final char ch = c[i];
+
+	    if (Character.isWhitespace(ch)) {
+		len = emit(token_list, buf, len);
+		dots = 0;
+	    }
+	    else if (((ch == ',') || (ch == ':')) && (len > 0) && isDigit(buf[len - 1]) && (i + 1 < c.length) && isDigit(c[i + 1])) {
+		// inside a number or a time, e.g., "1,000" or "10:30"
+		buf[len++] = ch;
+	    }
+	    else if (PUNCTUATION.indexOf(ch) >= 0) {
+		len = emit(token_list, buf, len);
+		dots = 0;
+		emitPunctuation(token_list, ch);
+	    }
+	    else if (ch == '.') {
+		if ((i + 1 < c.length) && Character.isLetterOrDigit(c[i + 1])) {
+		    // inside an abbreviation, a number or a domain name
+		    buf[len++] = ch;
+		    dots++;
+		}
+		else if ((i + 1 < c.length) && (c[i + 1] == '.')) {
+		    // an ellipsis
+		    len = emit(token_list, buf, len);
+		    dots = 0;
+
+		    int j = i;
+
+		    while ((j < c.length) && (c[j] == '.')) {
+			j++;
+		    }
+
+		    token_list.add(new String(c, i, j - i));
+		    i = j;
+		    continue;
+		}
+		else if ((i < last) && isAbbreviation(buf, len, dots)) {
+		    buf[len++] = ch;
+		    len = emit(token_list, buf, len);
+		    dots = 0;
+		}
+		else {
+		    len = emit(token_list, buf, len);
+		    dots = 0;
+		    token_list.add(".");
+		}
+	    }
+	    else if (isApostrophe(ch) && (len > 0)) {
+		// split off contractions: "we've" => "we" "'ve", and
+		// "don't" => "do" "n't"
+
+		int j = i + 1;
+
+		while ((j < c.length) && Character.isLetter(c[j])) {
+		    j++;
+		}
+
+		final String suffix = new String(c, i + 1, j - i - 1).toLowerCase();
+
+		if (contractions.contains(suffix)) {
+		    len = emit(token_list, buf, len);
+		    dots = 0;
+		    buf[len++] = ch;
+		}
+		else if ("t".equals(suffix) && contractions.contains(NEGATION) && (len > 1) && (Character.toLowerCase(buf[len - 1]) == 'n')) {
+		    final char n = buf[len - 1];
+
+		    len = emit(token_list, buf, len - 1);
+		    dots = 0;
+		    buf[len++] = n;
+		    buf[len++] = ch;
+		}
+		else {
+		    // an apostrophe within a name, e.g., "O'Brien"
+		    buf[len++] = ch;
+		}
+	    }
+	    else if (isApostrophe(ch)) {
+		emitPunctuation(token_list, ch);
+	    }
+	    else {
+		buf[len++] = normalize ? Character.toLowerCase(ch) : ch;
+	    }
+
+	    i++;
+	}
+
+	emit(token_list, buf, len);
+
+	return token_list.toArray(new String[token_list.size()]);
+    }
+
+
+    /**
+     * Emit the token accumulated in the buffer, if any, and return
+     * the new length of the buffer.
+     */
+
+    protected int
+	emit (final List<String> token_list, final char[] buf, final int len)
+    {
+	if (len > 0) {
+	    token_list.add(new String(buf, 0, len));
+	}
+
+	return 0;
+    }
+
+
+    /**
+     * Emit one punctuation char as a token, where normalizing drops
+     * double quotes down to an empty token, the same as LanguageEnglish.
+     */
+
+    protected void
+	emitPunctuation (final List<String> token_list, final char ch)
+    {
+	if (normalize && (ch == '"')) {
+	    token_list.add("");
+	}
+	else {
+	    token_list.add(String.valueOf(ch));
+	}
+    }
+
+
+    /**
+     * Determine whether a period ends an abbreviation rather than the
+     * sentence: "U.S.", an initial, or a known abbreviation.
+     */
+
+    protected boolean
+	isAbbreviation (final char[] buf, final int len, final int dots)
+    {
+	if (len == 0) {
+	    return false;
+	}
+	else if (dots > 0) {
+	    return !isDigit(buf[len - 1]);
+	}
+	else if ((len == 1) && Character.isLetter(buf[0])) {
+	    return true;
+	}
+
+	return abbreviations.contains(new String(buf, 0, len).toLowerCase());
+    }
+
+
+    /**
+     * Web text often has a typographic apostrophe instead of a plain
+     * one.
+     */
+
+    protected static boolean
+	isApostrophe (final char ch)
+    {
+	return (ch == '\'') || (ch == '\u2019');
+    }
+
+
+    /**
+     * ASCII digits only, which is all a number needs here.
+     */
+
+    protected static boolean
+	isDigit (final char ch)
+    {
+	return (ch >= '0') && (ch <= '9');
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // agreement report
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Count the tokens which two tokenizations have in common, as
+     * the length of their longest common subsequence.
+     */
+
+    public static int
+	countAgreement (final String[] a, final String[] b)
+    {
+	int[] prev = new int[b.length + 1];
+	int[] curr = new int[b.length + 1];
+
+	for (int i = 1; i <= a.length; i++) {
+	    for (int j = 1; j <= b.length; j++) {
+		if (a[i - 1].equals(b[j - 1])) {
+		    curr[j] = prev[j - 1] + 1;
+		}
+		else {
+		    curr[j] = Math.max(prev[j], curr[j - 1]);
+		}
+	    }
+
+	    final int[] swap = prev;
+	    prev = curr;
+	    curr = swap;
+	}
+
+	return prev[b.length];
+    }
+
+
+    /**
+     * Main entry point, which reports how well the rule-based
+     * tokenizer agrees with the maxent tokenizer of a language on
+     * the given documents, and how much faster it runs.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final LanguageModel lang = LanguageModel.buildLanguage(res_path, lang_code);
+	final RuleTokenizer rules = lang.getRuleTokenizer();
+
+	long sentences = 0L;
+	long exact = 0L;
+	long maxent_tokens = 0L;
+	long rule_tokens = 0L;
+	long common = 0L;
+	long maxent_time = 0L;
+	long rule_time = 0L;
+	final StringBuilder diffs = new StringBuilder();
+	final List<String> sent_list = new ArrayList<String>();
+
+	// known hard cases first, e.g., common words at the end of a
+	// sentence which are also abbreviations elsewhere
+
+	for (String sent_text : lang.getTokenizerSamples()) {
+	    sent_list.add(sent_text);
+	}
+
+	for (int f = 3; f < args.length; f++) {
+	    for (String sent_text : lang.splitParagraph(IOUtils.readFile(args[f]))) {
+		sent_list.add(sent_text);
+	    }
+	}
+
+	lang.setTokenizerMode(LanguageModel.TokenizerMode.MAXENT);
+
+	for (String sent_text : lang.getTokenizerSamples()) {
+	    final String[] a = lang.tokenizeSentence(sent_text);
+	    final String[] b = rules.tokenize(sent_text);
+
+	    if (!Arrays.equals(a, b)) {
+		LOG.info("SAMPLE:\t" + sent_text + "\tmaxent " + Arrays.toString(a) + "\trules " + Arrays.toString(b));
+	    }
+	}
+
+	for (String sent_text : sent_list) {
+	    final String text = sent_text.trim();
+
+	    long start_time = System.nanoTime();
+	    final String[] a = lang.tokenizeSentence(text);
+	    maxent_time += System.nanoTime() - start_time;
+
+	    start_time = System.nanoTime();
+	    final String[] b = rules.tokenize(text);
+	    rule_time += System.nanoTime() - start_time;
+
+	    sentences++;
+	    maxent_tokens += a.length;
+	    rule_tokens += b.length;
+	    common += countAgreement(a, b);
+
+	    if (Arrays.equals(a, b)) {
+		exact++;
+	    }
+	    else if (LOG.isDebugEnabled()) {
+		diffs.append("\n  maxent: ").append(Arrays.toString(a));
+		diffs.append("\n  rules:  ").append(Arrays.toString(b));
+	    }
+	}
+
+	final double precision = (rule_tokens == 0L) ? 0.0D : ((double) common / (double) rule_tokens);
+	final double recall = (maxent_tokens == 0L) ? 0.0D : ((double) common / (double) maxent_tokens);
+
+	LOG.info("SENTENCES:\t" + sentences + ", " + exact + " tokenized identically");
+	LOG.info("TOKENS:\tmaxent " + maxent_tokens + ", rules " + rule_tokens + ", in common " + common);
+	LOG.info("AGREEMENT:\tprecision " + precision + ", recall " + recall + ", F1 " + ((precision + recall) == 0.0D ? 0.0D : (2.0D * precision * recall / (precision + recall))));
+	LOG.info("TIME:\tmaxent " + (maxent_time / 1000000L) + " ms, rules " + (rule_time / 1000000L) + " ms");
+
+	if (LOG.isDebugEnabled()) {
+	    LOG.debug("DISAGREEMENTS:" + diffs);
+	}
+    }
+}
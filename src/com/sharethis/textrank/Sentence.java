@@ -53,14 +53,23 @@ public class
         LogFactory.getLog(Sentence.class.getName());
 
 
+    /**
+     * Public definitions.
+     */
+
+    public final static long FNV_OFFSET = 0xcbf29ce484222325L;
+    public final static long FNV_PRIME = 0x100000001b3L;
+
+
     /**
      * Public members.
      */
 
     public String text = null;
     public String[] token_list = null;
+    public String[] tag_list = null;
     public Node[] node_list = null;
-    public String md5_hash = null;
+    public long fingerprint = 0L;
 
 
     /**
@@ -75,94 +84,123 @@ public class
 
 
     /**
-     * Return a byte array formatted as hexadecimal text.
+     * Main processing per sentence.
      */
 
-    public static String
-	hexFormat (final byte[] b)
+    public void
+	mapTokens (final LanguageModel lang, final Cache cache, final Graph graph)
+	throws Exception
     {
-	final StringBuilder sb = new StringBuilder(b.length * 2);
+	// reuse the tokens and tags for a sentence seen in some other
+	// document, if there's a shared cache
 
-	for (int i = 0; i < b.length; i++) {
-	    String h = Integer.toHexString(b[i]);
+	final String analysis = lang.getAnalysisKey();
+	final SentenceCache.Entry shared_hit =
+	    (cache.shared == null) ? null : cache.shared.get(analysis, text);
+
+	if (shared_hit != null) {
+	    token_list = shared_hit.token_list;
+	}
+	else {
+	    token_list = lang.tokenizeSentence(text);
+	}
 
-	    if (h.length() == 1) {
-		sb.append("0");
+	fingerprint = hashTokens();
+
+	// use the fingerprint to lookup sentence in the cache,
+	// adding another scanned sentence if it's new
+
+	if (cache.add(this)) {
+	    // scan each token to determine part-of-speech
+
+	    if (shared_hit != null) {
+		tag_list = shared_hit.tag_list;
 	    }
-	    else if (h.length() == 8) {
-		h = h.substring(6);
+	    else {
+		tag_list = lang.tagTokens(token_list);
+
+		if (cache.shared != null) {
+		    cache.shared.put(analysis, text, token_list, tag_list);
+		}
 	    }
 
-	    sb.append(h);
-	}
+	    // create nodes for the graph
 
-	return sb.toString().toUpperCase();
+	    buildNodes(lang, graph);
+	}
     }
 
 
     /**
-     * Main processing per sentence.
+     * Determine a 64-bit fingerprint for this sentence, from the
+     * chars of its tokens: FNV-1a with a separator after each token,
+     * then a final avalanche mix. Not cryptographic, so the cache
+     * checks the tokens on a hit.
      */
 
-    public void
-	mapTokens (final LanguageModel lang, final Cache cache, final Graph graph)
-	throws Exception
+    public long
+	hashTokens ()
     {
-	token_list = lang.tokenizeSentence(text);
-
-	// determine an MD5 signature for this sentence
-
-	cache.md_sent.reset();
+	long h = FNV_OFFSET;
 
 	for (int i = 0; i < token_list.length; i++) {
+	    final String token = token_list[i];
+
 	    if (LOG.isDebugEnabled()) {
-		LOG.debug("token: " + token_list[i]);
+		LOG.debug("token: " + token);
 	    }
 
-	    cache.md_sent.update(token_list[i].getBytes());
+	    for (int j = 0; j < token.length(); j++) {
+		h = (h ^ token.charAt(j)) * FNV_PRIME;
+	    }
+
+	    h = (h ^ 0xFFFFL) * FNV_PRIME;
 	}
 
-	md5_hash = hexFormat(cache.md_sent.digest());
+	// mix the high bits down, as in MurmurHash3
 
-	// use MD5 hash to lookup sentence in the cache
+	h ^= h >>> 33;
+	h *= 0xff51afd7ed558ccdL;
+	h ^= h >>> 33;
+	h *= 0xc4ceb9fe1a85ec53L;
+	h ^= h >>> 33;
 
-	final Sentence cache_hit = cache.get(md5_hash);
+	return h;
+    }
 
-	if (cache_hit == null) {
-	    // add another scanned sentence to the cache
 
-	    cache.put(md5_hash, this);
+    /**
+     * Create nodes in the graph for the relevant tokens, connecting
+     * adjacent ones.
+     */
 
-	    // scan each token to determine part-of-speech
+    public void
+	buildNodes (final LanguageModel lang, final Graph graph)
+	throws Exception
+    {
+	Node last_node = null;
+	node_list = new Node[token_list.length];
 
-	    final String[] tag_list = lang.tagTokens(token_list);
+	for (int i = 0; i < token_list.length; i++) {
+	    final String pos = tag_list[i];
 
-	    // create nodes for the graph
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("token: " + token_list[i] + " pos tag: " + pos);
+	    }
 
-	    Node last_node = null;
-	    node_list = new Node[token_list.length];
+	    if (lang.isRelevant(pos)) {
+		final String key = lang.getNodeKey(token_list[i], pos);
+		final KeyWord value = new KeyWord(token_list[i], pos);
+		final Node n = Node.buildNode(graph, key, value);
 
-	    for (int i = 0; i < token_list.length; i++) {
-		final String pos = tag_list[i];
+		// emit nodes to construct the graph
 
-		if (LOG.isDebugEnabled()) {
-		    LOG.debug("token: " + token_list[i] + " pos tag: " + pos);
+		if (last_node != null) {
+		    n.connect(last_node);
 		}
 
-		if (lang.isRelevant(pos)) {
-		    final String key = lang.getNodeKey(token_list[i], pos);
-		    final KeyWord value = new KeyWord(token_list[i], pos);
-		    final Node n = Node.buildNode(graph, key, value);
-
-		    // emit nodes to construct the graph
-
-		    if (last_node != null) {
-			n.connect(last_node);
-		    }
-
-		    last_node = n;
-		    node_list[i] = n;
-		}
+		last_node = n;
+		node_list[i] = n;
 	    }
 	}
     }
@@ -0,0 +1,112 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Bounded LRU cache of tokenized and tagged sentences, which can be
+ * shared across documents and threads, so that boilerplate repeated
+ * on many pages (nav bars, footers, legal text) only goes through
+ * OpenNLP once. Keyed by the exact sentence text along with the
+ * LanguageModel.getAnalysisKey() it was analyzed under, so that one
+ * cache can serve several languages, and changing a tokenizer or
+ * tagger setting never gets results from the old one.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    SentenceCache
+    extends LruCache<String, SentenceCache.Entry>
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(SentenceCache.class.getName());
+
+
+    /**
+     * Tokens and tags for one sentence, which must not be modified.
+     */
+
+    public static class
+	Entry
+    {
+	public final String[] token_list;
+	public final String[] tag_list;
+
+	public
+	    Entry (final String[] token_list, final String[] tag_list)
+	{
+	    this.token_list = token_list;
+	    this.tag_list = tag_list;
+	}
+    }
+
+
+    /**
+     * Constructor, holding up to roughly the given number of
+     * sentences.
+     */
+
+    public
+	SentenceCache (final int max_sentences)
+    {
+	super(max_sentences);
+    }
+
+
+    /**
+     * Lookup the tokens and tags for a sentence.
+     */
+
+    public Entry
+	get (final String analysis, final String text)
+    {
+	return get(analysis + '\t' + text);
+    }
+
+
+    /**
+     * Add the tokens and tags for a sentence.
+     */
+
+    public void
+	put (final String analysis, final String text, final String[] token_list, final String[] tag_list)
+    {
+	put(analysis + '\t' + text, new Entry(token_list, tag_list));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Maps the sentences of a document in parallel on a fork-join pool:
+ * tokenizing, hashing and tagging run concurrently, then the graph
+ * gets built serially in sentence order, so that the result matches
+ * the serial path exactly.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    SentenceMapper
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(SentenceMapper.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int SENTENCES_PER_TASK = 2;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected static ForkJoinPool shared_pool = null;
+
+    /**
+     * Singleton pool, sized to the number of available cores.
+     */
+
+    public static synchronized ForkJoinPool
+	getSharedPool ()
+    {
+	if (shared_pool == null) {
+	    shared_pool = new ForkJoinPool();
+	}
+
+	return shared_pool;
+    }
+
+
+    /**
+     * Task which runs either the tokenize or the tag step over a
+     * range of sentences, splitting the range in half until it is
+     * small enough.
+     */
+
+    protected static class
+	Task
+	extends RecursiveAction
+    {
+	protected final LanguageModel lang;
+	protected final Sentence[] sentences;
+	protected final int start;
+	protected final int end;
+	protected final boolean tag;
+	protected final Deadline deadline;
+	protected final SentenceCache shared;
+	protected final String analysis;
+
+	public
+	    Task (final LanguageModel lang, final Sentence[] sentences, final int start, final int end, final boolean tag, final Deadline deadline, final SentenceCache shared, final String analysis)
+	{
+	    this.deadline = deadline;
+	    this.shared = shared;
+	    this.analysis = analysis;
+	    this.lang = lang;
+	    this.sentences = sentences;
+	    this.start = start;
+	    this.end = end;
+	    this.tag = tag;
+	}
+
+	protected void
+	    compute ()
+	{
+	    if (end - start <= SENTENCES_PER_TASK) {
+		for (int i = start; i < end; i++) {
+		    final Sentence s = sentences[i];
+
+		    // once past the deadline, skip the remaining work
+
+		    if ((deadline != null) && deadline.isExpired()) {
+			return;
+		    }
+
+		    if (tag) {
+			// already tagged, if found in the shared cache
+
+			if (s.tag_list == null) {
+			    s.tag_list = lang.tagTokens(s.token_list);
+
+			    if (shared != null) {
+				shared.put(analysis, s.text, s.token_list, s.tag_list);
+			    }
+			}
+		    }
+		    else {
+			final SentenceCache.Entry shared_hit =
+			    (shared == null) ? null : shared.get(analysis, s.text);
+
+			if (shared_hit != null) {
+			    s.token_list = shared_hit.token_list;
+			    s.tag_list = shared_hit.tag_list;
+			}
+			else {
+			    s.token_list = lang.tokenizeSentence(s.text);
+			}
+
+			s.fingerprint = s.hashTokens();
+		    }
+		}
+	    }
+	    else {
+		final int mid = (start + end) >>> 1;
+
+		invokeAll(new Task(lang, sentences, start, mid, tag, deadline, shared, analysis),
+			  new Task(lang, sentences, mid, end, tag, deadline, shared, analysis)
+			  );
+	    }
+	}
+    }
+
+
+    /**
+     * Map the sentences of a paragraph into the cache and graph,
+     * checking the deadline, if any, after each parallel step.
+     */
+
+    public static void
+	mapSentences (final ForkJoinPool pool, final LanguageModel lang, final String[] sent_list, final Cache cache, final Graph graph, final Deadline deadline)
+	throws Exception
+    {
+	final Sentence[] sentences = new Sentence[sent_list.length];
+
+	for (int i = 0; i < sent_list.length; i++) {
+	    sentences[i] = new Sentence(sent_list[i].trim());
+	}
+
+	// tokenize and hash in parallel, under the same settings used
+	// to key any shared results
+
+	final String analysis = lang.getAnalysisKey();
+
+	pool.invoke(new Task(lang, sentences, 0, sentences.length, false, deadline, cache.shared, analysis));
+
+	if (deadline != null) {
+	    deadline.check("construct_graph");
+	}
+
+	// drop repeated sentences, in order, the same as the cache
+	// lookup in Sentence.mapTokens
+
+	final List<Sentence> unique = new ArrayList<Sentence>();
+
+	for (Sentence s : sentences) {
+	    if (cache.add(s)) {
+		unique.add(s);
+	    }
+	}
+
+	// tag in parallel
+
+	final Sentence[] unique_list = unique.toArray(new Sentence[unique.size()]);
+
+	pool.invoke(new Task(lang, unique_list, 0, unique_list.length, true, deadline, cache.shared, analysis));
+
+	if (deadline != null) {
+	    deadline.check("construct_graph");
+	}
+
+	// merge into the graph in sentence order
+
+	for (Sentence s : unique_list) {
+	    s.buildNodes(lang, graph);
+
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("s: " + s.text);
+		LOG.debug(s.fingerprint);
+	    }
+	}
+    }
+}
@@ -0,0 +1,362 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.io.File;
+
+import java.text.DecimalFormat;
+
+import opennlp.maxent.Context;
+import opennlp.maxent.GISModel;
+import opennlp.maxent.MaxentModel;
+import opennlp.maxent.TObjectIndexHashMap;
+import opennlp.maxent.io.SuffixSensitiveGISModelReader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * A maxent model which can be shared across threads. The parameters
+ * of a GISModel are immutable once loaded, but its eval() method
+ * keeps scratch counts in an instance field, so this evaluates
+ * against the same parameters using per-call scratch space instead.
+ * Subclasses may keep the parameters elsewhere, e.g., MappedModel.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    SharedModel
+    implements MaxentModel
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(SharedModel.class.getName());
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final GISModel model;
+    protected final Context[] params;
+    protected final TObjectIndexHashMap pmap;
+    protected final String[] outcome_names;
+    protected final int num_outcomes;
+    protected final double correction_constant;
+    protected final double correction_param;
+    protected final double iprob;
+    protected final double fval;
+    protected long footprint = 0L;
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	SharedModel (final GISModel model)
+    {
+	final Object[] data = model.getDataStructures();
+
+	this.model = model;
+	this.params = (Context[]) data[0];
+	this.pmap = (TObjectIndexHashMap) data[1];
+	this.outcome_names = (String[]) data[2];
+	this.num_outcomes = outcome_names.length;
+	this.correction_constant = ((Integer) data[3]).doubleValue();
+	this.correction_param = ((Double) data[4]).doubleValue();
+	this.iprob = Math.log(1.0D / (double) num_outcomes);
+	this.fval = 1.0D / correction_constant;
+    }
+
+
+    /**
+     * Constructor for subclasses which keep their own parameters.
+     */
+
+    protected
+	SharedModel (final String[] outcome_names, final int correction_constant, final double correction_param)
+    {
+	this.model = null;
+	this.params = null;
+	this.pmap = null;
+	this.outcome_names = outcome_names;
+	this.num_outcomes = outcome_names.length;
+	this.correction_constant = (double) correction_constant;
+	this.correction_param = correction_param;
+	this.iprob = Math.log(1.0D / (double) num_outcomes);
+	this.fval = 1.0D / this.correction_constant;
+    }
+
+
+    /**
+     * Factory method, loads a model from a file, which may be
+     * compressed. Uses the compiled copy instead, if there's an
+     * up-to-date one.
+     */
+
+    public static SharedModel
+	loadModel (final File file)
+	throws Exception
+    {
+	final File compiled = MappedModel.getCompiledFile(file);
+
+	if (compiled.exists() && (compiled.lastModified() >= file.lastModified())) {
+	    try {
+		return MappedModel.load(compiled);
+	    }
+	    catch (Exception e) {
+		LOG.warn("cannot map compiled model " + compiled + ", loading " + file, e);
+	    }
+	}
+
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("loading model: " + file);
+	}
+
+	return new SharedModel(new SuffixSensitiveGISModelReader(file).getModel());
+    }
+
+
+    /**
+     * Evaluate a context, returning the probability of each outcome.
+     */
+
+    public double[]
+	eval (final String[] context)
+    {
+	return eval(context, new double[num_outcomes]);
+    }
+
+
+    /**
+     * Evaluate a context into the given array, returning the
+     * probability of each outcome. Same arithmetic as GISModel.
+     */
+
+    public double[]
+	eval (final String[] context, final double[] outsums)
+    {
+	final int[] numfeats = new int[num_outcomes];
+
+	for (int oid = 0; oid < num_outcomes; oid++) {
+	    outsums[oid] = iprob;
+	}
+
+	for (int i = 0; i < context.length; i++) {
+	    final int ci = getPredicateIndex(context[i]);
+
+	    if (ci >= 0) {
+		addParameters(ci, outsums, numfeats);
+	    }
+	}
+
+	double normal = 0.0D;
+
+	for (int oid = 0; oid < num_outcomes; oid++) {
+	    outsums[oid] = Math.exp((outsums[oid] * fval) +
+				    ((1.0D - ((double) numfeats[oid] / correction_constant)) * correction_param)
+				    );
+	    normal += outsums[oid];
+	}
+
+	for (int oid = 0; oid < num_outcomes; oid++) {
+	    outsums[oid] /= normal;
+	}
+
+	return outsums;
+    }
+
+
+    /**
+     * Lookup the index of a predicate, or -1 if the model doesn't
+     * have it.
+     */
+
+    protected int
+	getPredicateIndex (final String predicate)
+    {
+	return pmap.get(predicate);
+    }
+
+
+    /**
+     * Add the parameters of a predicate to the sums of the outcomes
+     * which it activates, counting the features.
+     */
+
+    protected void
+	addParameters (final int ci, final double[] outsums, final int[] numfeats)
+    {
+	final int[] active_outcomes = params[ci].getOutcomes();
+	final double[] active_params = params[ci].getParameters();
+
+	for (int j = 0; j < active_outcomes.length; j++) {
+	    final int oid = active_outcomes[j];
+
+	    numfeats[oid]++;
+	    outsums[oid] += active_params[j];
+	}
+    }
+
+
+    /**
+     * Return the name of the most probable outcome.
+     */
+
+    public String
+	getBestOutcome (final double[] outcomes)
+    {
+	int best = 0;
+
+	for (int i = 1; i < outcomes.length; i++) {
+	    if (outcomes[i] > outcomes[best]) {
+		best = i;
+	    }
+	}
+
+	return outcome_names[best];
+    }
+
+
+    /**
+     * Render all of the outcomes with their probabilities.
+     */
+
+    public String
+	getAllOutcomes (final double[] outcomes)
+    {
+	if (outcomes.length != num_outcomes) {
+	    return "The double array sent as a parameter to getAllOutcomes() must not have been produced by this model.";
+	}
+
+	// GISModel formats using a shared DecimalFormat, so use our own
+
+	final DecimalFormat df = new DecimalFormat("0.0000");
+	final StringBuilder sb = new StringBuilder(outcomes.length * 2);
+
+	for (int i = 0; i < outcomes.length; i++) {
+	    if (i > 0) {
+		sb.append("  ");
+	    }
+
+	    sb.append(outcome_names[i]).append('[').append(df.format(outcomes[i])).append(']');
+	}
+
+	return sb.toString();
+    }
+
+
+    /**
+     * Return the name of the given outcome.
+     */
+
+    public String
+	getOutcome (final int i)
+    {
+	return outcome_names[i];
+    }
+
+
+    /**
+     * Return the index of the given outcome.
+     */
+
+    public int
+	getIndex (final String outcome)
+    {
+	for (int i = 0; i < num_outcomes; i++) {
+	    if (outcome_names[i].equals(outcome)) {
+		return i;
+	    }
+	}
+
+	return -1;
+    }
+
+
+    /**
+     * Return the underlying data structures of the model.
+     */
+
+    public Object[]
+	getDataStructures ()
+    {
+	return model.getDataStructures();
+    }
+
+
+    /**
+     * Estimate the heap held by the parameters and predicate index,
+     * in bytes, assuming compressed object pointers.
+     */
+
+    public long
+	getFootprint ()
+    {
+	if (footprint == 0L) {
+	    long bytes = 0L;
+
+	    for (Context c : params) {
+		// the Context, plus its two arrays
+
+		bytes += 16L + (16L + 4L * c.getOutcomes().length) + (16L + 8L * c.getParameters().length);
+	    }
+
+	    for (Object key : pmap.keys()) {
+		// the String and its chars, plus a hash slot
+
+		bytes += 40L + 2L * ((String) key).length() + 12L;
+	    }
+
+	    footprint = bytes;
+	}
+
+	return footprint;
+    }
+
+
+    /**
+     * Return the number of outcomes.
+     */
+
+    public int
+	getNumOutcomes ()
+    {
+	return num_outcomes;
+    }
+}
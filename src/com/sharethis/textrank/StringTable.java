@@ -0,0 +1,262 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * An immutable table of strings, laid out so that it can be looked
+ * up in place within a mapped file: an open addressing hash index,
+ * the char offset of each string, then all of the chars.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    StringTable
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(StringTable.class.getName());
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final int count;
+    protected final int mask;
+    protected final IntBuffer slots;
+    protected final IntBuffer offsets;
+    protected final CharBuffer chars;
+
+
+    /**
+     * Constructor, which reads the table in place, starting from the
+     * current position of the buffer, then skips the buffer past it.
+     */
+
+    public
+	StringTable (final ByteBuffer buf)
+    {
+	count = buf.getInt();
+
+	final int table_size = buf.getInt();
+
+	mask = table_size - 1;
+	slots = slice(buf, 4 * table_size).asIntBuffer();
+	offsets = slice(buf, 4 * (count + 1)).asIntBuffer();
+	chars = slice(buf, 2 * offsets.get(count)).asCharBuffer();
+    }
+
+
+    /**
+     * Split off the next len bytes of the buffer.
+     */
+
+    public static ByteBuffer
+	slice (final ByteBuffer buf, final int len)
+    {
+	final ByteBuffer dup = buf.duplicate();
+
+	dup.limit(dup.position() + len);
+	buf.position(buf.position() + len);
+
+	return dup.slice();
+    }
+
+
+    /**
+     * Spread the bits of the String hash, since the index masks off
+     * the low bits.
+     */
+
+    protected static int
+	hash (final String s)
+    {
+	int h = s.hashCode() * 0x9e3779b9;
+
+	return h ^ (h >>> 16);
+    }
+
+
+    /**
+     * Serialize a table of distinct strings.
+     */
+
+    public static void
+	write (final DataOutputStream out, final String[] strings)
+	throws IOException
+    {
+	int table_size = 2;
+
+	while (table_size < (strings.length * 2)) {
+	    table_size <<= 1;
+	}
+
+	final int[] table = new int[table_size];
+
+	for (int i = 0; i < strings.length; i++) {
+	    int h = hash(strings[i]) & (table_size - 1);
+
+	    while (table[h] != 0) {
+		h = (h + 1) & (table_size - 1);
+	    }
+
+	    table[h] = i + 1;
+	}
+
+	out.writeInt(strings.length);
+	out.writeInt(table_size);
+
+	for (int i = 0; i < table_size; i++) {
+	    out.writeInt(table[i]);
+	}
+
+	int offset = 0;
+
+	for (int i = 0; i < strings.length; i++) {
+	    out.writeInt(offset);
+	    offset += strings[i].length();
+	}
+
+	out.writeInt(offset);
+
+	for (int i = 0; i < strings.length; i++) {
+	    out.writeChars(strings[i]);
+	}
+    }
+
+
+    /**
+     * Lookup the index of a string, or -1 if it's not in the table.
+     */
+
+    public int
+	indexOf (final String s)
+    {
+	int h = hash(s) & mask;
+
+	while (true) {
+	    final int entry = slots.get(h);
+
+	    if (entry == 0) {
+		return -1;
+	    }
+	    else if (matches(entry - 1, s)) {
+		return entry - 1;
+	    }
+
+	    h = (h + 1) & mask;
+	}
+    }
+
+
+    /**
+     * Compare the chars of the i-th string in place.
+     */
+
+    protected boolean
+	matches (final int i, final String s)
+    {
+	final int start = offsets.get(i);
+
+	if ((offsets.get(i + 1) - start) != s.length()) {
+	    return false;
+	}
+
+	for (int j = 0; j < s.length(); j++) {
+	    if (chars.get(start + j) != s.charAt(j)) {
+		return false;
+	    }
+	}
+
+	return true;
+    }
+
+
+    /**
+     * Return the i-th string.
+     */
+
+    public String
+	get (final int i)
+    {
+	final int start = offsets.get(i);
+	final char[] c = new char[offsets.get(i + 1) - start];
+
+	for (int j = 0; j < c.length; j++) {
+	    c[j] = chars.get(start + j);
+	}
+
+	return new String(c);
+    }
+
+
+    /**
+     * Return all of the strings, in order.
+     */
+
+    public String[]
+	toArray ()
+    {
+	final String[] strings = new String[count];
+
+	for (int i = 0; i < count; i++) {
+	    strings[i] = get(i);
+	}
+
+	return strings;
+    }
+
+
+    /**
+     * Number of strings in the table.
+     */
+
+    public int
+	size ()
+    {
+	return count;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.PointerType;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * The WordNet expansion of one lemma, precomputed for replay into a
+ * synset subgraph: its senses, the hypernyms of each sense, and the
+ * hyponyms of each hypernym (i.e., the siblings, plus the sense
+ * itself). Shared across documents through bounded caches, since the
+ * same common nouns get expanded over and over.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    SynsetExpansion
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(SynsetExpansion.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int LEMMA_CACHE_SIZE = 50000;
+    public final static int HYPONYM_CACHE_SIZE = 50000;
+
+    public final static SynsetExpansion NONE =
+	new SynsetExpansion(null, WordNetIndex.NO_OFFSETS, new long[0][], new long[0][][]);
+
+
+    /**
+     * Public members.
+     */
+
+    public final String lemma;
+    public final long[] senses;
+    public final long[][] hypernyms;
+    public final long[][][] hyponyms;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final static LruCache<String, SynsetExpansion> text_cache =
+	new LruCache<String, SynsetExpansion>(LEMMA_CACHE_SIZE);
+
+    protected final static LruCache<String, SynsetExpansion> lemma_cache =
+	new LruCache<String, SynsetExpansion>(LEMMA_CACHE_SIZE);
+
+    protected final static LruCache<String, long[]> hyponym_cache =
+	new LruCache<String, long[]>(HYPONYM_CACHE_SIZE);
+
+    static {
+	final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+	metrics.registerGauge("wordnet_expansion_hits",
+			      new MetricsRegistry.Gauge() {
+				  public long getValue () {
+				      return text_cache.getHits();
+				  }
+			      });
+
+	metrics.registerGauge("wordnet_expansion_misses",
+			      new MetricsRegistry.Gauge() {
+				  public long getValue () {
+				      return text_cache.getMisses();
+				  }
+			      });
+    }
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	SynsetExpansion (final String lemma, final long[] senses, final long[][] hypernyms, final long[][][] hyponyms)
+    {
+	this.lemma = lemma;
+	this.senses = senses;
+	this.hypernyms = hypernyms;
+	this.hyponyms = hyponyms;
+    }
+
+
+    /**
+     * Lookup the expansion for the given text, first by its surface
+     * form, then by its lemma, only going to WordNet if both miss.
+     * Returns NONE when WordNet doesn't know the text.
+     */
+
+    public static SynsetExpansion
+	lookup (final POS pos, final String text)
+	throws JWNLException
+    {
+	final String text_key = pos.getKey() + '\t' + text;
+	SynsetExpansion expansion = text_cache.get(text_key);
+
+	if (expansion == null) {
+	    final IndexWord iw = WordNet.getLemma(pos, text);
+
+	    if (iw == null) {
+		expansion = NONE;
+	    }
+	    else {
+		final String lemma_key = pos.getKey() + '\t' + iw.getLemma();
+		expansion = lemma_cache.get(lemma_key);
+
+		if (expansion == null) {
+		    expansion = expand(pos, iw.getLemma(), iw.getSynsetOffsets());
+		    lemma_cache.put(lemma_key, expansion);
+		}
+	    }
+
+	    text_cache.put(text_key, expansion);
+	}
+
+	return expansion;
+    }
+
+
+    /**
+     * Walk WordNet from each sense, through its hypernyms, to their
+     * hyponyms.
+     */
+
+    protected static SynsetExpansion
+	expand (final POS pos, final String lemma, final long[] senses)
+	throws JWNLException
+    {
+	final long[][] hypernyms = new long[senses.length][];
+	final long[][][] hyponyms = new long[senses.length][][];
+
+	for (int i = 0; i < senses.length; i++) {
+	    hypernyms[i] = WordNet.getPointerTargets(pos, senses[i], PointerType.HYPERNYM);
+	    hyponyms[i] = new long[hypernyms[i].length][];
+
+	    for (int j = 0; j < hypernyms[i].length; j++) {
+		hyponyms[i][j] = getHyponyms(pos, hypernyms[i][j]);
+	    }
+	}
+
+	return new SynsetExpansion(lemma, senses.clone(), hypernyms, hyponyms);
+    }
+
+
+    /**
+     * Lookup the hyponyms of a synset, shared between the lemmas
+     * which have it as a hypernym.
+     */
+
+    protected static long[]
+	getHyponyms (final POS pos, final long offset)
+	throws JWNLException
+    {
+	final String key = pos.getKey() + '\t' + offset;
+	long[] targets = hyponym_cache.get(key);
+
+	if (targets == null) {
+	    targets = WordNet.getPointerTargets(pos, offset, PointerType.HYPONYM);
+	    hyponym_cache.put(key, targets);
+	}
+
+	return targets;
+    }
+
+
+    /**
+     * Drop all of the cached expansions, e.g., after changing the
+     * WordNet database.
+     */
+
+    public static void
+	clear ()
+    {
+	text_cache.clear();
+	lemma_cache.clear();
+	hyponym_cache.clear();
+    }
+}
@@ -33,10 +33,6 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.sharethis.textrank;
 
 import net.didion.jwnl.data.POS;
-import net.didion.jwnl.data.IndexWord;
-import net.didion.jwnl.data.Pointer;
-import net.didion.jwnl.data.PointerType;
-import net.didion.jwnl.data.Synset;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -66,7 +62,8 @@ public class
 
     public static enum MyRelation { SYNONYM, HYPERNYM, SIBLING }
 
-    public Synset synset = null;
+    public POS pos = null;
+    public long offset = 0L;
     public Node parent = null;
     public int hops = 0;
     public MyRelation relation = null;
@@ -77,10 +74,11 @@ public class
      */
 
     public
-	SynsetLink (final String text, final Synset synset, final Node parent, final MyRelation relation, final int hops)
+	SynsetLink (final String text, final POS pos, final long offset, final Node parent, final MyRelation relation, final int hops)
     {
 	this.text = text;
-	this.synset = synset;
+	this.pos = pos;
+	this.offset = offset;
 	this.parent = parent;
 	this.relation = relation;
 	this.hops = hops;
@@ -98,12 +96,29 @@ public class
 
 	sb.append(relation);
 	sb.append('\t');
-	sb.append(synset);
+	sb.append(getSynset());
 
 	return sb.toString();
     }
 
 
+    /**
+     * Describe the synset in WordNet which this value denotes.
+     */
+
+    public String
+	getSynset ()
+    {
+	try {
+	    return WordNet.describeSynset(pos, offset);
+	}
+	catch (Exception e) {
+	    LOG.warn("cannot describe synset " + offset, e);
+	    return Long.toString(offset);
+	}
+    }
+
+
     /**
      * Foo
      */
@@ -112,46 +127,47 @@ public class
 	addKeyWord (final Graph subgraph, final Node n, final String text, final POS pos)
 	throws Exception
     {
-	final IndexWord iw = WordNet.getLemma(pos, text);
+	// replay the cached expansion, descending only through the
+	// synsets which are new to this subgraph
+
+	final SynsetExpansion expansion = SynsetExpansion.lookup(pos, text);
 
 	if (LOG.isDebugEnabled()) {
 	    LOG.debug("n: " + n.key + " " + n.rank + " " + n.marked + " " + text);
-	    LOG.debug(iw);
+	    LOG.debug(expansion.lemma);
 	}
 
-	if (iw != null) {
-	    for (Synset synset : iw.getSenses()) {
-		if (LOG.isDebugEnabled()) {
-		    LOG.debug("synset: " + synset);
-		}
+	for (int i = 0; i < expansion.senses.length; i++) {
+	    final long synset = expansion.senses[i];
 
-		final Node node_synset = testLink(subgraph, synset, n, MyRelation.SYNONYM, 1);
-
-		if (node_synset != null) {
-		    final Pointer[] hypernyms = synset.getPointers(PointerType.HYPERNYM);
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("synset: " + synset);
+	    }
 
-		    for (Pointer hypernym : hypernyms) {
-			final Synset hypernym_synset = hypernym.getTargetSynset();
+	    final Node node_synset = testLink(subgraph, pos, synset, n, MyRelation.SYNONYM, 1);
 
-			if (LOG.isDebugEnabled()) {
-			    LOG.debug("hypernym: " + hypernym_synset);
-			}
+	    if (node_synset != null) {
+		final long[] hypernyms = expansion.hypernyms[i];
 
-			final Node node_hypernym = testLink(subgraph, hypernym_synset, node_synset, MyRelation.HYPERNYM, 2);
+		for (int j = 0; j < hypernyms.length; j++) {
+		    final long hypernym_synset = hypernyms[j];
 
-			if (node_hypernym != null) {
-			    final Pointer[] siblings = hypernym_synset.getPointers(PointerType.HYPONYM);
+		    if (LOG.isDebugEnabled()) {
+			LOG.debug("hypernym: " + hypernym_synset);
+		    }
 
-			    for (Pointer sibling : siblings) {
-				final Synset sibling_synset = sibling.getTargetSynset();
+		    final Node node_hypernym = testLink(subgraph, pos, hypernym_synset, node_synset, MyRelation.HYPERNYM, 2);
 
-				if (sibling_synset.getOffset() != synset.getOffset()) {
-				    if (LOG.isDebugEnabled()) {
-					LOG.debug("sibling: " + sibling_synset);
-				    }
+		    if (node_hypernym != null) {
+			final long[] siblings = expansion.hyponyms[i][j];
 
-				    final Node node_sibling = testLink(subgraph, sibling_synset, node_hypernym, MyRelation.SIBLING, 3);
+			for (long sibling_synset : siblings) {
+			    if (sibling_synset != synset) {
+				if (LOG.isDebugEnabled()) {
+				    LOG.debug("sibling: " + sibling_synset);
 				}
+
+				final Node node_sibling = testLink(subgraph, pos, sibling_synset, node_hypernym, MyRelation.SIBLING, 3);
 			    }
 			}
 		    }
@@ -166,17 +182,15 @@ public class
      */
 
     public static Node
-	testLink (final Graph synset_subgraph, final Synset synset, final Node parent, final MyRelation relation, final int hops)
+	testLink (final Graph synset_subgraph, final POS pos, final long synset, final Node parent, final MyRelation relation, final int hops)
 	throws Exception
     {
-	final String synset_key = Long.toString(synset.getOffset());
-
-	Node node = synset_subgraph.get(synset_key);
+	Node node = synset_subgraph.getSynset(synset);
 
 	if (node == null) {
-	    final SynsetLink synset_link = new SynsetLink(synset_key, synset, parent, relation, hops);
+	    final SynsetLink synset_link = new SynsetLink(Long.toString(synset), pos, synset, parent, relation, hops);
 
-	    node = Node.buildNode(synset_subgraph, synset_key, synset_link);
+	    node = synset_subgraph.buildSynset(synset, synset_link);
 	    node.connect(parent);
 
 	    return node;
@@ -192,7 +206,7 @@ public class
 	    node.connect(parent);
 
 	    if (LOG.isDebugEnabled()) {
-		LOG.debug("mark key on " + synset_key);
+		LOG.debug("mark key on " + synset);
 		LOG.debug("mark hit on " + node.value);
 	    }
 
@@ -226,7 +240,7 @@ public class
 		final SynsetLink synset_link = (SynsetLink) node.value;
 
 		if (LOG.isDebugEnabled()) {
-		    LOG.debug("recur marking: " + synset_link.synset);
+		    LOG.debug("recur marking: " + synset_link.offset);
 		}
 
 		markAncestors(synset_link.parent);
@@ -40,22 +40,29 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 
+import java.nio.channels.FileChannel;
+
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import gnu.trove.THashMap;
+
 import net.didion.jwnl.data.POS;
 
 import org.apache.commons.logging.Log;
@@ -99,7 +106,20 @@ public class
     protected LanguageModel lang = null;
 
     protected String text = null;
+    protected long text_length = 0L;
     protected boolean use_wordnet = false;
+    protected ForkJoinPool sentence_pool = null;
+    protected int parallel_threshold = Graph.PARALLEL_THRESHOLD;
+    protected ForkJoinPool rank_pool = null;
+    protected long timeout = 0L;
+    protected Deadline deadline = null;
+    protected MetricsRegistry metrics = MetricsRegistry.getDefault();
+    protected SentenceCache sentence_cache = null;
+    protected int top_k = 0;
+    protected long wordnet_time_budget = 0L;
+    protected int wordnet_lookup_budget = 0;
+    protected int wordnet_candidates = 0;
+    protected int wordnet_enriched = 0;
 
     protected Cache cache = null;
     protected Graph graph = null;
@@ -123,6 +143,18 @@ public class
     }
 
 
+    /**
+     * Constructor, sharing a language model which has already been
+     * loaded, e.g., across the workers in a batch.
+     */
+
+    public
+	TextRank (final LanguageModel lang)
+    {
+	this.lang = lang;
+    }
+
+
     /**
      * Prepare to call algorithm with a new text to analyze.
      */
@@ -134,10 +166,13 @@ public class
 
 	cache = new Cache();
 	graph = new Graph();
+	graph.parallel_threshold = parallel_threshold;
+	graph.rank_pool = rank_pool;
 	ngram_subgraph = null;
-	metric_space = new HashMap<NGram, MetricVector>();
+	metric_space = new THashMap<NGram, MetricVector>();
 
 	this.text = text;
+	this.text_length = text.length();
 	this.use_wordnet = use_wordnet;
     }
 
@@ -151,26 +186,106 @@ public class
     public Collection<MetricVector>
 	call ()
 	throws Exception
+    {
+	lang.beginUse();
+
+	try {
+	    final Collection<MetricVector> result = rankText();
+	    metrics.increment(MetricsRegistry.DOCUMENTS, 1L);
+
+	    return result;
+	}
+	catch (TextRankTimeoutException e) {
+	    metrics.increment(MetricsRegistry.TIMEOUTS, 1L);
+	    throw e;
+	}
+	finally {
+	    lang.endUse();
+	}
+    }
+
+
+    /**
+     * Run each pass of the algorithm, recording the metrics.
+     */
+
+    protected Collection<MetricVector>
+	rankText ()
+	throws Exception
     {
 	//////////////////////////////////////////////////
 	// PASS 1: construct a graph from PoS tags
 
 	initTime();
+	startDeadline();
 
 	// scan sentences to construct a graph of relevent morphemes
 
-	for (String sent_text : lang.splitParagraph(text)) {
-	    final Sentence s = new Sentence(sent_text.trim());
-	    s.mapTokens(lang, cache, graph);
+	mapSentences(lang.splitParagraph(text));
 
-	    if (LOG.isDebugEnabled()) {
-		LOG.debug("s: " + s.text);
-		LOG.debug(s.md5_hash);
+	markTime(MetricsRegistry.CONSTRUCT_GRAPH);
+
+	metrics.record(MetricsRegistry.GRAPH_SIZE, graph.size());
+	metrics.increment(MetricsRegistry.SENTENCE_CACHE_HITS, cache.hits);
+	metrics.increment(MetricsRegistry.SENTENCE_CACHE_MISSES, cache.size());
+
+	rankKeyWords();
+
+	return rankPhrases();
+    }
+
+
+    /**
+     * Start timing the deadline for the work which follows.
+     */
+
+    protected void
+	startDeadline ()
+    {
+	deadline = new Deadline(timeout);
+	graph.deadline = deadline;
+    }
+
+
+    /**
+     * Tokenize and tag the given sentences, adding their relevant
+     * morphemes to the graph.
+     */
+
+    protected void
+	mapSentences (final String[] sent_list)
+	throws Exception
+    {
+	cache.shared = sentence_cache;
+
+	if (sentence_pool != null) {
+	    SentenceMapper.mapSentences(sentence_pool, lang, sent_list, cache, graph, deadline);
+	}
+	else {
+	    for (String sent_text : sent_list) {
+		deadline.check("construct_graph");
+
+		final Sentence s = new Sentence(sent_text.trim());
+		s.mapTokens(lang, cache, graph);
+
+		if (LOG.isDebugEnabled()) {
+		    LOG.debug("s: " + s.text);
+		    LOG.debug(s.fingerprint);
+		}
 	    }
 	}
+    }
 
-	markTime("construct_graph");
 
+    /**
+     * Rank the keywords in the graph, then collect the n-grams
+     * around the top-ranked ones.
+     */
+
+    protected void
+	rankKeyWords ()
+	throws Exception
+    {
 	//////////////////////////////////////////////////
 	// PASS 2: run TextRank to determine keywords
 
@@ -180,17 +295,32 @@ public class
 	    (int) Math.round((double) graph.size() * Graph.KEYWORD_REDUCTION_FACTOR);
 
 	graph.runTextRank();
+	metrics.record(MetricsRegistry.ITERATIONS, graph.iterations);
+
 	graph.sortResults(max_results);
 
 	ngram_subgraph = NGram.collectNGrams(lang, cache, graph.getRankThreshold());
 
-	markTime("basic_textrank");
+	markTime(MetricsRegistry.BASIC_TEXTRANK);
 
 	if (LOG.isInfoEnabled()) {
-	    LOG.info("TEXT_BYTES:\t" + text.length());
+	    LOG.info("TEXT_BYTES:\t" + text_length);
 	    LOG.info("GRAPH_SIZE:\t" + graph.size());
+	    LOG.info("GRAPH_MEMORY:\t" + graph.memoryFootprint());
 	}
+    }
+
 
+    /**
+     * Augment the graph with WordNet synsets and the n-grams, re-rank
+     * it, then normalize the ranks of each key phrase into a metric
+     * space.
+     */
+
+    protected Collection<MetricVector>
+	rankPhrases ()
+	throws Exception
+    {
 	//////////////////////////////////////////////////
 	// PASS 3: lemmatize selected keywords and phrases
 
@@ -198,37 +328,55 @@ public class
 
 	Graph synset_subgraph = new Graph();
 
-	// filter for edge cases
+	wordnet_candidates = 0;
+	wordnet_enriched = 0;
 
-	if (use_wordnet &&
-	    (text.length() < MAX_WORDNET_TEXT) &&
-	    (graph.size() < MAX_WORDNET_GRAPH)
-	    ) {
-	    // test the lexical value of nouns and adjectives in WordNet
+	if (use_wordnet) {
+	    // test the lexical value of nouns, adjectives and
+	    // collocations in WordNet
 
-	    for (Node n: graph.values()) {
-		final KeyWord kw = (KeyWord) n.value;
+	    final List<Node> candidates = collectWordNetCandidates();
+	    wordnet_candidates = candidates.size();
 
-		if (lang.isNoun(kw.pos)) {
-		    SynsetLink.addKeyWord(synset_subgraph, n, kw.text, POS.NOUN);
-		}
-		else if (lang.isAdjective(kw.pos)) {
-		    SynsetLink.addKeyWord(synset_subgraph, n, kw.text, POS.ADJECTIVE);
-		}
-	    }
+	    if (isWordNetBudgeted()) {
+		// highest ranked first, until the budget runs out
+
+		Collections.sort(candidates);
+
+		final Deadline budget = new Deadline(wordnet_time_budget);
 
-	    // test the collocations in WordNet
+		for (Node n : candidates) {
+		    deadline.check("augment_graph");
 
-	    for (Node n : ngram_subgraph.values()) {
-		final NGram gram = (NGram) n.value;
+		    if (budget.isExpired() ||
+			((wordnet_lookup_budget > 0) && (wordnet_enriched >= wordnet_lookup_budget))
+			) {
+			break;
+		    }
 
-		if (gram.nodes.size() > 1) {
-		    SynsetLink.addKeyWord(synset_subgraph, n, gram.getCollocation(), POS.NOUN);
+		    addSynsets(synset_subgraph, n);
+		    wordnet_enriched++;
+		}
+	    }
+	    else if (WordNet.isMemoryBacked() ||
+		     ((text_length < MAX_WORDNET_TEXT) && (graph.size() < MAX_WORDNET_GRAPH))
+		     ) {
+		// filter for edge cases, all or nothing -- the limits
+		// only guard the disk reads of the file-backed JWNL
+
+		for (Node n : candidates) {
+		    deadline.check("augment_graph");
+		    addSynsets(synset_subgraph, n);
+		    wordnet_enriched++;
 		}
 	    }
 
 	    synset_subgraph =
 		SynsetLink.pruneGraph(synset_subgraph, graph);
+
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("WORDNET:\t" + wordnet_enriched + " / " + wordnet_candidates);
+	    }
 	}
 
 	// augment the graph with n-grams added as nodes
@@ -245,7 +393,13 @@ public class
 	    }
 	}
 
-	markTime("augment_graph");
+	metrics.increment(MetricsRegistry.WORDNET_LOOKUPS, wordnet_enriched);
+
+	if (wordnet_candidates > 0) {
+	    metrics.record(MetricsRegistry.WORDNET_COVERAGE, Math.round(100.0D * getWordNetCoverage()));
+	}
+
+	markTime(MetricsRegistry.AUGMENT_GRAPH);
 
 	//////////////////////////////////////////////////
 	// PASS 4: re-run TextRank on the augmented graph
@@ -253,6 +407,7 @@ public class
 	initTime();
 
 	graph.runTextRank();
+	metrics.record(MetricsRegistry.ITERATIONS, graph.iterations);
 	//graph.sortResults(graph.size() / 2);
 
 	// collect stats for metrics
@@ -264,7 +419,7 @@ public class
 	    SynsetLink.calcStats(synset_subgraph);
 	}
 
-	markTime("ngram_textrank");
+	markTime(MetricsRegistry.NGRAM_TEXTRANK);
 
 	if (LOG.isInfoEnabled()) {
 	    if (LOG.isDebugEnabled()) {
@@ -281,7 +436,7 @@ public class
 
 		for (Node n : new TreeSet<Node>(synset_subgraph.values())) {
 		    final SynsetLink s = (SynsetLink) n.value;
-		    LOG.info("emit: " + s.synset + " " + n.rank + " " + s.relation);
+		    LOG.info("emit: " + s.getSynset() + " " + n.rank + " " + s.relation);
 		}
 	    }
 	}
@@ -300,6 +455,8 @@ public class
 	final double synset_min = synset_subgraph.dist_stats.getMin();
 	final double synset_coeff = synset_subgraph.dist_stats.getMax() - synset_subgraph.dist_stats.getMin();
 
+	final TopPhrases top_phrases = (top_k > 0) ? new TopPhrases(top_k, MIN_NORMALIZED_RANK) : null;
+
 	for (Node n : ngram_subgraph.values()) {
 	    final NGram gram = (NGram) n.value;
 
@@ -308,12 +465,25 @@ public class
 		final double count_rank = (gram.getCount() - count_min) / count_coeff;
 		final double synset_rank = use_wordnet ? n.maxNeighbor(synset_min, synset_coeff) : 0.0D;
 
-		final MetricVector mv = new MetricVector(gram, link_rank, count_rank, synset_rank);
-		metric_space.put(gram, mv);
+		if (top_phrases != null) {
+		    top_phrases.offer(gram, link_rank, count_rank, synset_rank);
+		}
+		else {
+		    final MetricVector mv = new MetricVector(gram, link_rank, count_rank, synset_rank);
+		    metric_space.put(gram, mv);
+		}
+	    }
+	}
+
+	// create the metric vectors for only the top K phrases
+
+	if (top_phrases != null) {
+	    for (MetricVector mv : top_phrases.toList()) {
+		metric_space.put((NGram) mv.value, mv);
 	    }
 	}
 
-	markTime("normalize_ranks");
+	markTime(MetricsRegistry.NORMALIZE_RANKS);
 
 	// return results
 
@@ -332,18 +502,20 @@ public class
     public void
 	initTime ()
     {
-	start_time = System.currentTimeMillis();
+	start_time = System.nanoTime();
     }
 
 
     /**
-     * Report the elapsed time with a label.
+     * Record the elapsed time for the pass with the given label in
+     * the metrics, and report it in milliseconds.
      */
 
     public void
 	markTime (final String label)
     {
-	elapsed_time = System.currentTimeMillis() - start_time;
+	metrics.recordTime(label, start_time);
+	elapsed_time = (System.nanoTime() - start_time) / 1000000L;
 
 	if (LOG.isInfoEnabled()) {
 	    LOG.info("ELAPSED_TIME:\t" + elapsed_time + "\t" + label);
@@ -351,6 +523,267 @@ public class
     }
 
 
+    /**
+     * Plug in the registry which receives the metrics for each
+     * call, instead of the default one exposed through JMX.
+     */
+
+    public void
+	setMetrics (final MetricsRegistry metrics)
+    {
+	this.metrics = metrics;
+    }
+
+
+    /**
+     * Collect the nodes worth testing in WordNet: nouns and
+     * adjectives among the keywords, plus the collocations.
+     */
+
+    protected List<Node>
+	collectWordNetCandidates ()
+    {
+	final List<Node> candidates = new ArrayList<Node>();
+
+	for (Node n : graph.values()) {
+	    final KeyWord kw = (KeyWord) n.value;
+
+	    if (lang.isNoun(kw.pos) || lang.isAdjective(kw.pos)) {
+		candidates.add(n);
+	    }
+	}
+
+	for (Node n : ngram_subgraph.values()) {
+	    final NGram gram = (NGram) n.value;
+
+	    if (gram.nodes.size() > 1) {
+		candidates.add(n);
+	    }
+	}
+
+	return candidates;
+    }
+
+
+    /**
+     * Link the WordNet synsets of a keyword or collocation node into
+     * the synset subgraph.
+     */
+
+    protected void
+	addSynsets (final Graph synset_subgraph, final Node n)
+	throws Exception
+    {
+	if (n.value instanceof NGram) {
+	    SynsetLink.addKeyWord(synset_subgraph, n, ((NGram) n.value).getCollocation(), POS.NOUN);
+	}
+	else {
+	    final KeyWord kw = (KeyWord) n.value;
+	    final POS pos = lang.isNoun(kw.pos) ? POS.NOUN : POS.ADJECTIVE;
+
+	    SynsetLink.addKeyWord(synset_subgraph, n, kw.text, pos);
+	}
+    }
+
+
+    /**
+     * Enrich each call with WordNet in descending rank order, until
+     * either budget runs out, instead of the all-or-nothing cutoffs
+     * on text length and graph size. The time budget is in
+     * milliseconds; zero means no limit on that budget, and zero for
+     * both restores the cutoffs.
+     */
+
+    public void
+	setWordNetBudget (final long time_budget, final int lookup_budget)
+    {
+	this.wordnet_time_budget = time_budget;
+	this.wordnet_lookup_budget = lookup_budget;
+    }
+
+
+    /**
+     * Determine whether WordNet enrichment runs on a budget.
+     */
+
+    public boolean
+	isWordNetBudgeted ()
+    {
+	return (wordnet_time_budget > 0L) || (wordnet_lookup_budget > 0);
+    }
+
+
+    /**
+     * Fraction of the WordNet candidates enriched by the last call.
+     */
+
+    public double
+	getWordNetCoverage ()
+    {
+	return (wordnet_candidates > 0) ? ((double) wordnet_enriched / (double) wordnet_candidates) : 0.0D;
+    }
+
+
+    /**
+     * Accessor for the number of WordNet candidates in the last call.
+     */
+
+    public int
+	getWordNetCandidates ()
+    {
+	return wordnet_candidates;
+    }
+
+
+    /**
+     * Accessor for the number of candidates enriched in the last call.
+     */
+
+    public int
+	getWordNetEnriched ()
+    {
+	return wordnet_enriched;
+    }
+
+
+    /**
+     * Only keep the top K key phrases from each call, which skips
+     * creating a MetricVector for the rest; zero keeps them all.
+     */
+
+    public void
+	setTopK (final int top_k)
+    {
+	this.top_k = top_k;
+    }
+
+
+    /**
+     * Select the K best key phrases from the last call, best first,
+     * using a bounded heap rather than sorting all of them. Only the
+     * phrases which getKeyPhrases() would return qualify.
+     */
+
+    public List<MetricVector>
+	getTopPhrases (final int k)
+    {
+	final List<MetricVector> result = new ArrayList<MetricVector>();
+
+	if (k > 0) {
+	    // the head of the queue is the worst phrase kept so far
+
+	    final PriorityQueue<MetricVector> heap =
+		new PriorityQueue<MetricVector>(Math.min(k, metric_space.size()) + 1, Collections.reverseOrder());
+
+	    for (MetricVector mv : metric_space.values()) {
+		if (!(mv.metric >= MIN_NORMALIZED_RANK)) {
+		    continue;
+		}
+
+		heap.add(mv);
+
+		if (heap.size() > k) {
+		    heap.poll();
+		}
+	    }
+
+	    result.addAll(heap);
+	    Collections.sort(result);
+	}
+
+	return result;
+    }
+
+
+    /**
+     * The key phrases from the last call which rank above
+     * MIN_NORMALIZED_RANK, best first.
+     */
+
+    public List<MetricVector>
+	getKeyPhrases ()
+    {
+	final TreeSet<MetricVector> key_phrase_list = new TreeSet<MetricVector>();
+
+	for (MetricVector mv : metric_space.values()) {
+	    if (mv.metric >= MIN_NORMALIZED_RANK) {
+		key_phrase_list.add(mv);
+	    }
+	}
+
+	return new ArrayList<MetricVector>(key_phrase_list);
+    }
+
+
+    /**
+     * Share the tokens and tags of sentences with other documents
+     * through the given cache, or stop sharing when it is null.
+     */
+
+    public void
+	setSentenceCache (final SentenceCache sentence_cache)
+    {
+	this.sentence_cache = sentence_cache;
+    }
+
+
+    /**
+     * Set a time limit for each call, in milliseconds, after which
+     * it aborts with a TextRankTimeoutException. Zero means no time
+     * limit, though interrupting the thread still aborts the call.
+     */
+
+    public void
+	setTimeout (final long timeout)
+    {
+	this.timeout = timeout;
+    }
+
+
+    /**
+     * Tokenize and tag the sentences in parallel on the given
+     * fork-join pool, or serially when the pool is null.
+     */
+
+    public void
+	setSentencePool (final ForkJoinPool sentence_pool)
+    {
+	this.sentence_pool = sentence_pool;
+    }
+
+
+    /**
+     * Rank graphs with at least the given number of nodes in
+     * parallel; see Graph.PARALLEL_THRESHOLD
+     */
+
+    public void
+	setParallelThreshold (final int parallel_threshold)
+    {
+	this.parallel_threshold = parallel_threshold;
+
+	if (graph != null) {
+	    graph.parallel_threshold = parallel_threshold;
+	}
+    }
+
+
+    /**
+     * Rank large graphs in parallel on the given fork-join pool, or
+     * on the shared pool when it is null.
+     */
+
+    public void
+	setRankPool (final ForkJoinPool rank_pool)
+    {
+	this.rank_pool = rank_pool;
+
+	if (graph != null) {
+	    graph.rank_pool = rank_pool;
+	}
+    }
+
+
     /**
      * Accessor for the graph.
      */
@@ -363,47 +796,38 @@ public class
 
 
     /**
-     * Serialize the graph to a file which can be rendered.
+     * Serialize the graph to a TSV file which can be rendered.
      */
 
     public void
 	serializeGraph (final String graph_file)
 	throws Exception
     {
-	for (Node n : graph.values()) {
-	    n.marked = false;
-	}
+	serializeGraph(graph_file, GraphExporter.Format.TSV);
+    }
 
-	final TreeSet<String> entries = new TreeSet<String>();
 
-	for (Node n : ngram_subgraph.values()) {
-	    final NGram gram = (NGram) n.value;
-	    final MetricVector mv = metric_space.get(gram);
+    /**
+     * Serialize the graph to a file, in the given format.
+     */
 
-	    if (mv != null) {
-		final StringBuilder sb = new StringBuilder();
+    public void
+	serializeGraph (final String graph_file, final GraphExporter.Format format)
+	throws Exception
+    {
+	final FileChannel channel = new FileOutputStream(graph_file).getChannel();
 
-		sb.append("rank").append('\t');
-		sb.append(n.getId()).append('\t');
-		sb.append(mv.render());
-		entries.add(sb.toString());
+	try {
+	    final GraphExporter exporter = new GraphExporter(channel, format);
+	    exporter.export(ngram_subgraph, metric_space);
 
-		n.serializeGraph(entries);
+	    if (LOG.isInfoEnabled()) {
+		LOG.info("GRAPH_FILE:\t" + graph_file + "\t" + exporter.getNodeCount() + " nodes\t" + exporter.getEdgeCount() + " edges");
 	    }
 	}
-
-        final OutputStreamWriter fw =
-	    new OutputStreamWriter(new FileOutputStream(graph_file), "UTF-8");
-						   
-        try {
-	    for (String entry : entries) {
-		fw.write(entry, 0, entry.length());
-		fw.write('\n');
-	    }
-        }
 	finally {
-            fw.close();
-        }
+	    channel.close();
+	}
     }
 
 
@@ -414,13 +838,10 @@ public class
     public String
 	toString ()
     {
-	final TreeSet<MetricVector> key_phrase_list = new TreeSet<MetricVector>(metric_space.values());
 	final StringBuilder sb = new StringBuilder();
 
-	for (MetricVector mv : key_phrase_list) {
-	    if (mv.metric >= MIN_NORMALIZED_RANK) {
-		sb.append(mv.render()).append("\t").append(mv.value.text).append("\n");
-	    }
+	for (MetricVector mv : getKeyPhrases()) {
+	    sb.append(mv.render()).append("\t").append(mv.value.text).append("\n");
 	}
 
 	return sb.toString();
@@ -465,8 +886,11 @@ public class
 
 	// main entry point for the algorithm
 
+	final long timeout = 15000L;
+
 	final TextRank tr = new TextRank(res_path, lang_code);
 	tr.prepCall(text, use_wordnet);
+	tr.setTimeout(timeout);
 
 	// wrap the call in a timed task
 
@@ -474,31 +898,43 @@ public class
 	Collection<MetricVector> answer = null;
 
 	final Thread thread = new Thread(task);
-	thread.run();
+	thread.start();
 
 	try {
 	    //answer = task.get();  // run until complete
-	    answer = task.get(15000L, TimeUnit.MILLISECONDS); // timeout in N ms
+	    answer = task.get(timeout, TimeUnit.MILLISECONDS); // timeout in N ms
 	}
 	catch (ExecutionException e) {
-	    LOG.error("exec exception", e);
+	    if (e.getCause() instanceof TextRankTimeoutException) {
+		LOG.error("timeout: " + e.getCause().getMessage());
+	    }
+	    else {
+		LOG.error("exec exception", e);
+	    }
+
+	    return;
 	}
 	catch (InterruptedException e) {
 	    LOG.error("interrupt", e);
+	    return;
 	}
 	catch (TimeoutException e) {
 	    LOG.error("timeout", e);
 
-	    // Unfortunately, with graph size > 700, even read-only
-	    // access to WordNet on disk will block and cause the
-	    // thread to be uninterruptable. None of the following
-	    // remedies work...
+	    // the call checks for interrupts between sentences, rank
+	    // iterations, and WordNet lookups, so it stops soon after
+	    // this -- though a read blocked inside the file-backed
+	    // WordNet only gets noticed once it returns
 
-	    //thread.interrupt();
-	    //task.cancel(true);
+	    task.cancel(true);
 	    return;
 	}
 
 	LOG.info("\n" + tr);
+	LOG.info("METRICS:\t" + MetricsRegistry.getDefault().snapshot());
+
+	// dump the graph, in binary for a ".bin" file, otherwise TSV
+
+	tr.serializeGraph(graph_file, graph_file.endsWith(".bin") ? GraphExporter.Format.BINARY : GraphExporter.Format.TSV);
     }
 }
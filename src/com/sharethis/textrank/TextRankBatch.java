@@ -0,0 +1,418 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Runs TextRank over batches of documents on a pool of worker
+ * threads, which share the loaded language model and WordNet. Each
+ * document gets its own TextRank instance, so per-document state and
+ * errors stay isolated.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    TextRankBatch
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(TextRankBatch.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int PENDING_PER_THREAD = 4;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected LanguageModel lang = null;
+    protected ExecutorService pool = null;
+    protected int num_threads = 0;
+    protected long timeout = 0L;
+    protected MetricsRegistry metrics = MetricsRegistry.getDefault();
+    protected SentenceCache sentence_cache = null;
+    protected long wordnet_time_budget = 0L;
+    protected int wordnet_lookup_budget = 0;
+    protected boolean has_wordnet = false;
+    protected int parallel_threshold = Graph.PARALLEL_THRESHOLD;
+    protected ForkJoinPool rank_pool = null;
+
+
+    /**
+     * Constructor, loads the language model and WordNet ONCE for all
+     * of the workers.
+     */
+
+    public
+	TextRankBatch (final String res_path, final String lang_code, final int num_threads)
+	throws Exception
+    {
+	this.lang = LanguageModel.buildLanguage(res_path, lang_code);
+
+	// WordNet is only available for English
+
+	if ("en".equals(lang_code)) {
+	    WordNet.buildDictionary(res_path, lang_code);
+	    has_wordnet = true;
+	}
+
+	this.num_threads = num_threads;
+	this.pool = Executors.newFixedThreadPool(num_threads, new WorkerFactory());
+    }
+
+
+    /**
+     * Name the worker threads, and don't let them keep the JVM alive.
+     */
+
+    protected static class
+	WorkerFactory
+	implements ThreadFactory
+    {
+	protected final AtomicInteger count = new AtomicInteger();
+
+	public Thread
+	    newThread (final Runnable r)
+	{
+	    final Thread thread = new Thread(r, "textrank-worker-" + count.incrementAndGet());
+	    thread.setDaemon(true);
+
+	    return thread;
+	}
+    }
+
+
+    /**
+     * Task which runs TextRank on one document.
+     */
+
+    protected class
+	Task
+	implements Callable<BatchResult>
+    {
+	protected final long index;
+	protected final String text;
+	protected final boolean use_wordnet;
+
+	public
+	    Task (final long index, final String text, final boolean use_wordnet)
+	{
+	    this.index = index;
+	    this.text = text;
+
+	    // without a dictionary there's nothing to enrich with
+
+	    this.use_wordnet = use_wordnet && has_wordnet;
+	}
+
+	public BatchResult
+	    call ()
+	{
+	    final BatchResult result = new BatchResult(index);
+	    final long start_time = System.currentTimeMillis();
+
+	    try {
+		final TextRank tr = new TextRank(lang);
+
+		tr.setTimeout(timeout);
+		tr.setMetrics(metrics);
+		tr.setSentenceCache(sentence_cache);
+		tr.setWordNetBudget(wordnet_time_budget, wordnet_lookup_budget);
+		tr.setParallelThreshold(parallel_threshold);
+		tr.setRankPool(rank_pool);
+		tr.prepCall(text, use_wordnet);
+		result.setAnswer(tr, tr.call());
+	    }
+	    catch (TextRankTimeoutException e) {
+		LOG.warn("document " + index + " " + e.getMessage());
+		result.error = e;
+	    }
+	    catch (Throwable t) {
+		// any Error too, so that one document can't fail the batch
+
+		LOG.warn("document " + index + " failed", t);
+		result.error = t;
+	    }
+
+	    result.elapsed_time = System.currentTimeMillis() - start_time;
+
+	    return result;
+	}
+    }
+
+
+    /**
+     * Set a time limit per document, in milliseconds; zero means no
+     * time limit.
+     */
+
+    public void
+	setTimeout (final long timeout)
+    {
+	this.timeout = timeout;
+    }
+
+
+    /**
+     * Share the tokens and tags of repeated sentences across all of
+     * the documents in the batch, through the given cache.
+     */
+
+    public void
+	setSentenceCache (final SentenceCache sentence_cache)
+    {
+	this.sentence_cache = sentence_cache;
+    }
+
+
+    /**
+     * Enrich each document with WordNet on a time and/or lookup
+     * budget; see TextRank.setWordNetBudget()
+     */
+
+    public void
+	setWordNetBudget (final long time_budget, final int lookup_budget)
+    {
+	this.wordnet_time_budget = time_budget;
+	this.wordnet_lookup_budget = lookup_budget;
+    }
+
+
+    /**
+     * Rank the graphs of at least the given number of nodes in
+     * parallel, on the given fork-join pool or else the shared one;
+     * see TextRank.setParallelThreshold()
+     */
+
+    public void
+	setParallelRanking (final int parallel_threshold, final ForkJoinPool rank_pool)
+    {
+	this.parallel_threshold = parallel_threshold;
+	this.rank_pool = rank_pool;
+    }
+
+
+    /**
+     * Plug in the registry which receives the metrics for every
+     * document in the batch.
+     */
+
+    public void
+	setMetrics (final MetricsRegistry metrics)
+    {
+	this.metrics = metrics;
+    }
+
+
+    /**
+     * Process a collection of documents, returning one result per
+     * document, in input order. WordNet only gets used for English,
+     * whatever use_wordnet says.
+     */
+
+    public List<BatchResult>
+	process (final Collection<String> documents, final boolean use_wordnet)
+    {
+	final List<BatchResult> results = new ArrayList<BatchResult>(documents.size());
+	final Iterator<BatchResult> iter = process(documents.iterator(), use_wordnet);
+
+	while (iter.hasNext()) {
+	    results.add(iter.next());
+	}
+
+	return results;
+    }
+
+
+    /**
+     * Process a stream of documents, returning results lazily, in
+     * input order. Only a bounded number of documents are in flight
+     * at once, so the input can be arbitrarily long.
+     */
+
+    public Iterator<BatchResult>
+	process (final Iterator<String> documents, final boolean use_wordnet)
+    {
+	final int max_pending = num_threads * PENDING_PER_THREAD;
+
+	return new Iterator<BatchResult>() {
+	    protected final LinkedList<Future<BatchResult>> pending = new LinkedList<Future<BatchResult>>();
+	    protected long count = 0L;
+
+	    protected void fill () {
+		while ((pending.size() < max_pending) && documents.hasNext()) {
+		    pending.add(pool.submit(new Task(count++, documents.next(), use_wordnet)));
+		}
+	    }
+
+	    public boolean hasNext () {
+		fill();
+		return !pending.isEmpty();
+	    }
+
+	    public BatchResult next () {
+		fill();
+
+		if (pending.isEmpty()) {
+		    throw new NoSuchElementException();
+		}
+
+		try {
+		    return pending.removeFirst().get();
+		}
+		catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new RuntimeException("interrupted while waiting for batch", e);
+		}
+		catch (ExecutionException e) {
+		    throw new RuntimeException("batch task failed", e.getCause());
+		}
+	    }
+
+	    public void remove () {
+		throw new UnsupportedOperationException();
+	    }
+	};
+    }
+
+
+    /**
+     * Process a stream of documents, returning results lazily, in
+     * the order they complete, so that one slow document doesn't
+     * hold up the rest. Use BatchResult.index to match them up.
+     */
+
+    public Iterator<BatchResult>
+	processAsCompleted (final Iterator<String> documents, final boolean use_wordnet)
+    {
+	final int max_pending = num_threads * PENDING_PER_THREAD;
+	final CompletionService<BatchResult> completed = new ExecutorCompletionService<BatchResult>(pool);
+
+	return new Iterator<BatchResult>() {
+	    protected int pending = 0;
+	    protected long count = 0L;
+
+	    protected void fill () {
+		while ((pending < max_pending) && documents.hasNext()) {
+		    completed.submit(new Task(count++, documents.next(), use_wordnet));
+		    pending++;
+		}
+	    }
+
+	    public boolean hasNext () {
+		fill();
+		return pending > 0;
+	    }
+
+	    public BatchResult next () {
+		fill();
+
+		if (pending == 0) {
+		    throw new NoSuchElementException();
+		}
+
+		try {
+		    final BatchResult result = completed.take().get();
+		    pending--;
+
+		    return result;
+		}
+		catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new RuntimeException("interrupted while waiting for batch", e);
+		}
+		catch (ExecutionException e) {
+		    throw new RuntimeException("batch task failed", e.getCause());
+		}
+	    }
+
+	    public void remove () {
+		throw new UnsupportedOperationException();
+	    }
+	};
+    }
+
+
+    /**
+     * Accessor for the shared language model.
+     */
+
+    public LanguageModel
+	getLanguageModel ()
+    {
+	return lang;
+    }
+
+
+    /**
+     * Stop the worker pool, waiting for documents in flight.
+     */
+
+    public void
+	shutdown ()
+	throws InterruptedException
+    {
+	pool.shutdown();
+	pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+}
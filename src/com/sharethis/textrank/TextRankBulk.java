@@ -0,0 +1,379 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import com.sharethis.common.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * Bulk command line interface, which streams a corpus through a
+ * TextRankBatch and writes one JSON record per document, so that a
+ * whole corpus pays for JVM startup and model loading only once.
+ *
+ * The corpus is either a JSONL file, with one {"id": ..., "text":
+ * ...} object per line, or a directory with one document per file.
+ * Each output record has the document's index, id and elapsed time,
+ * plus either its key phrases or its error.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    TextRankBulk
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(TextRankBulk.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static String ORDER_INPUT = "input";
+    public final static String ORDER_COMPLETION = "completion";
+
+
+    /**
+     * One document read from the corpus, or the reason it couldn't
+     * be read.
+     */
+
+    protected static class
+	Document
+    {
+	public final String id;
+	public final String text;
+	public final String error;
+
+	public
+	    Document (final String id, final String text, final String error)
+	{
+	    this.id = id;
+	    this.text = text;
+	    this.error = error;
+	}
+    }
+
+
+    /**
+     * Iterates over the document texts, remembering the id of each
+     * one by its index within the batch until its result gets
+     * written. Unreadable documents go through as empty texts, so
+     * their error records keep their place in the output.
+     */
+
+    protected static abstract class
+	Corpus
+	implements Iterator<String>
+    {
+	protected final Map<Long, Document> pending = new HashMap<Long, Document>();
+	protected long count = 0L;
+	protected Document next_doc = null;
+	protected boolean done = false;
+
+	protected abstract Document
+	    readDocument ()
+	    throws IOException;
+
+	public boolean
+	    hasNext ()
+	{
+	    if ((next_doc == null) && !done) {
+		try {
+		    next_doc = readDocument();
+		    done = (next_doc == null);
+		}
+		catch (IOException e) {
+		    throw new RuntimeException("failed reading corpus", e);
+		}
+	    }
+
+	    return next_doc != null;
+	}
+
+	public String
+	    next ()
+	{
+	    if (!hasNext()) {
+		throw new NoSuchElementException();
+	    }
+
+	    final Document doc = next_doc;
+	    next_doc = null;
+	    pending.put(count++, doc);
+
+	    return (doc.error == null) ? doc.text : "";
+	}
+
+	public Document
+	    remove (final long index)
+	{
+	    return pending.remove(index);
+	}
+
+	public void
+	    remove ()
+	{
+	    throw new UnsupportedOperationException();
+	}
+    }
+
+
+    /**
+     * Corpus with one JSON object per line.
+     */
+
+    protected static class
+	JsonLinesCorpus
+	extends Corpus
+    {
+	protected final BufferedReader reader;
+	protected long line_num = 0L;
+
+	public
+	    JsonLinesCorpus (final File file)
+	    throws IOException
+	{
+	    reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+	}
+
+	protected Document
+	    readDocument ()
+	    throws IOException
+	{
+	    String line = null;
+
+	    do {
+		line = reader.readLine();
+		line_num++;
+
+		if (line == null) {
+		    reader.close();
+		    return null;
+		}
+	    }
+	    while (line.trim().length() == 0);
+
+	    final String default_id = "line " + line_num;
+
+	    try {
+		final Map<String, Object> obj = Json.parseObject(line);
+		final String id = Json.getString(obj, "id", default_id);
+		final String text = Json.getString(obj, "text", null);
+
+		if (text == null) {
+		    return new Document(id, null, "missing \"text\"");
+		}
+
+		return new Document(id, text, null);
+	    }
+	    catch (IllegalArgumentException e) {
+		return new Document(default_id, null, e.getMessage());
+	    }
+	}
+    }
+
+
+    /**
+     * Corpus with one document per file, in file name order.
+     */
+
+    protected static class
+	DirectoryCorpus
+	extends Corpus
+    {
+	protected final File[] files;
+	protected int i = 0;
+
+	public
+	    DirectoryCorpus (final File dir)
+	{
+	    files = dir.listFiles();
+	    Arrays.sort(files);
+	}
+
+	protected Document
+	    readDocument ()
+	{
+	    while (i < files.length) {
+		final File file = files[i++];
+
+		if (file.isFile()) {
+		    try {
+			return new Document(file.getName(), IOUtils.readFile(file.getPath()), null);
+		    }
+		    catch (Exception e) {
+			return new Document(file.getName(), null, String.valueOf(e));
+		    }
+		}
+	    }
+
+	    return null;
+	}
+    }
+
+
+    /**
+     * Run the corpus through the batch, writing one record per
+     * document as each result comes back. Returns the number of
+     * documents which failed.
+     */
+
+    public static long
+	run (final TextRankBatch batch, final Corpus corpus, final Writer out, final boolean in_order, final boolean use_wordnet)
+	throws IOException
+    {
+	final Iterator<BatchResult> results = in_order
+	    ? batch.process(corpus, use_wordnet)
+	    : batch.processAsCompleted(corpus, use_wordnet);
+
+	long count = 0L;
+	long errors = 0L;
+
+	while (results.hasNext()) {
+	    final BatchResult result = results.next();
+	    final Document doc = corpus.remove(result.index);
+	    final StringBuilder sb = new StringBuilder();
+
+	    if (doc.error != null) {
+		sb.append("{\"index\":").append(result.index);
+		Json.quote(sb.append(",\"id\":"), doc.id);
+		sb.append(",\"elapsed_ms\":").append(result.elapsed_time);
+		Json.quote(sb.append(",\"error\":"), doc.error);
+		sb.append(",\"timeout\":false}");
+		errors++;
+	    }
+	    else {
+		result.renderJson(sb, doc.id);
+
+		if (!result.isSuccess()) {
+		    errors++;
+		}
+	    }
+
+	    out.write(sb.append('\n').toString());
+	    count++;
+
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("document " + result.index + " " + doc.id + " in " + result.elapsed_time + " ms");
+	    }
+	}
+
+	out.flush();
+
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("DOCUMENTS:\t" + count + " (" + errors + " failed)");
+	}
+
+	return errors;
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // command line interface
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Main entry point.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+	final File input = new File(args[3]);
+	final String output = args[4];
+	final int num_threads = (args.length > 5) ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+	final String order = (args.length > 6) ? args[6] : ORDER_INPUT;
+	final long timeout = (args.length > 7) ? Long.parseLong(args[7]) : 15000L;
+
+	if (!ORDER_INPUT.equals(order) && !ORDER_COMPLETION.equals(order)) {
+	    throw new IllegalArgumentException("order must be \"" + ORDER_INPUT + "\" or \"" + ORDER_COMPLETION + "\": " + order);
+	}
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final Corpus corpus = input.isDirectory()
+	    ? new DirectoryCorpus(input)
+	    : new JsonLinesCorpus(input);
+
+	final Writer out = "-".equals(output)
+	    ? new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"))
+	    : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"));
+
+	final long start_time = System.currentTimeMillis();
+	final TextRankBatch batch = new TextRankBatch(res_path, lang_code, num_threads);
+
+	batch.setTimeout(timeout);
+	batch.setSentenceCache(new SentenceCache(TextRankServer.SENTENCE_CACHE_SIZE));
+
+	try {
+	    run(batch, corpus, out, ORDER_INPUT.equals(order), "en".equals(lang_code));
+	}
+	finally {
+	    out.close();
+	    batch.shutdown();
+	}
+
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("ELAPSED:\t" + (System.currentTimeMillis() - start_time) + " ms");
+	    LOG.info("METRICS:\t" + MetricsRegistry.getDefault().snapshot());
+	}
+    }
+}
@@ -0,0 +1,554 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * Long-running HTTP service which loads the language model and
+ * WordNet ONCE, then ranks the documents POSTed to it as JSON on a
+ * bounded pool of worker threads. Requests beyond the pool and its
+ * queue get turned away with a 429, rather than piling up.
+ *
+ *   POST /rank     {"text": "...", "top_k": 20, "timeout": 1000, "wordnet": true}
+ *   GET  /metrics  snapshot of the metrics registry
+ *   GET  /health   pool and queue depth
+ *
+ * where "top_k" may be at most MAX_TOP_K.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    TextRankServer
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(TextRankServer.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int DEFAULT_PORT = 8011;
+    public final static int QUEUE_PER_THREAD = 16;
+    public final static int MAX_REQUEST_BYTES = 4 * 1024 * 1024;
+    public final static int SENTENCE_CACHE_SIZE = 100000;
+    public final static int MAX_TOP_K = 1000;
+    public final static String JSON_TYPE = "application/json; charset=UTF-8";
+
+
+    /**
+     * Protected members.
+     */
+
+    protected LanguageModel lang = null;
+    protected boolean use_wordnet = false;
+    protected HttpServer server = null;
+    protected ThreadPoolExecutor pool = null;
+    protected long timeout = 0L;
+    protected int top_k = 0;
+    protected MetricsRegistry metrics = MetricsRegistry.getDefault();
+    protected SentenceCache sentence_cache = new SentenceCache(SENTENCE_CACHE_SIZE);
+
+
+    /**
+     * Constructor, binding the server to the given address with a
+     * pool of worker threads and a bounded queue of waiting requests.
+     */
+
+    public
+	TextRankServer (final LanguageModel lang, final boolean use_wordnet, final InetSocketAddress address, final int num_threads, final int queue_size)
+	throws IOException
+    {
+	this.lang = lang;
+	this.use_wordnet = use_wordnet;
+
+	pool = new ThreadPoolExecutor(num_threads, num_threads, 0L, TimeUnit.MILLISECONDS,
+				      new ArrayBlockingQueue<Runnable>(queue_size),
+				      new TextRankBatch.WorkerFactory()
+				      );
+
+	// the dispatcher thread only hands off requests, while the
+	// workers read, rank and respond
+
+	server = HttpServer.create(address, 0);
+	server.createContext("/rank", new RankHandler());
+	server.createContext("/metrics", new MetricsHandler());
+	server.createContext("/health", new HealthHandler());
+    }
+
+
+    /**
+     * Set a time limit per document, in milliseconds, which requests
+     * may lower but not raise; zero means no time limit.
+     */
+
+    public void
+	setTimeout (final long timeout)
+    {
+	this.timeout = timeout;
+    }
+
+
+    /**
+     * Default number of key phrases to return; zero returns all of
+     * those above TextRank.MIN_NORMALIZED_RANK.
+     */
+
+    public void
+	setTopK (final int top_k)
+    {
+	this.top_k = top_k;
+    }
+
+
+    /**
+     * Plug in the registry which receives the metrics for every
+     * request.
+     */
+
+    public void
+	setMetrics (final MetricsRegistry metrics)
+    {
+	this.metrics = metrics;
+    }
+
+
+    /**
+     * Accessor for the bound address.
+     */
+
+    public InetSocketAddress
+	getAddress ()
+    {
+	return server.getAddress();
+    }
+
+
+    /**
+     * Start accepting requests.
+     */
+
+    public void
+	start ()
+    {
+	server.start();
+	LOG.info("listening on " + server.getAddress());
+    }
+
+
+    /**
+     * Stop accepting requests, then wait for those in flight.
+     */
+
+    public void
+	stop (final int delay)
+	throws InterruptedException
+    {
+	server.stop(delay);
+	pool.shutdown();
+	pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // handlers
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Queue each document for a worker, or push back with a 429 when
+     * the queue is full.
+     */
+
+    protected class
+	RankHandler
+	implements HttpHandler
+    {
+	public void
+	    handle (final HttpExchange exchange)
+	    throws IOException
+	{
+	    if (!"POST".equals(exchange.getRequestMethod())) {
+		sendError(exchange, 405, "use POST");
+		return;
+	    }
+
+	    try {
+		pool.execute(new RankTask(exchange));
+	    }
+	    catch (RejectedExecutionException e) {
+		metrics.increment(MetricsRegistry.REJECTED, 1L);
+		exchange.getResponseHeaders().set("Retry-After", "1");
+		sendError(exchange, 429, "server busy, " + pool.getQueue().size() + " requests queued");
+	    }
+	}
+    }
+
+
+    /**
+     * Task which reads one document, ranks it, and responds.
+     */
+
+    protected class
+	RankTask
+	implements Runnable
+    {
+	protected final HttpExchange exchange;
+
+	public
+	    RankTask (final HttpExchange exchange)
+	{
+	    this.exchange = exchange;
+	}
+
+	public void
+	    run ()
+	{
+	    final long start_time = System.currentTimeMillis();
+	    int status = 500;
+	    StringBuilder response = null;
+
+	    try {
+		final Map<String, Object> request = Json.parseObject(readBody(exchange));
+		final String text = Json.getString(request, "text", null);
+
+		if (text == null) {
+		    throw new IllegalArgumentException("missing \"text\"");
+		}
+
+		final long k = Json.getLong(request, "top_k", top_k);
+
+		if ((k < 0L) || (k > MAX_TOP_K)) {
+		    throw new IllegalArgumentException("\"top_k\" must be between 0 and " + MAX_TOP_K);
+		}
+
+		long t = Json.getLong(request, "timeout", timeout);
+
+		if (timeout > 0L) {
+		    t = (t > 0L) ? Math.min(t, timeout) : timeout;
+		}
+
+		final TextRank tr = new TextRank(lang);
+
+		tr.setTimeout(t);
+		tr.setTopK((int) k);
+		tr.setMetrics(metrics);
+		tr.setSentenceCache(sentence_cache);
+		tr.prepCall(text, use_wordnet && Json.getBoolean(request, "wordnet", true));
+		tr.call();
+
+		final List<MetricVector> phrases = (k > 0L) ? tr.getTopPhrases((int) k) : tr.getKeyPhrases();
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("{\"elapsed_ms\":").append(System.currentTimeMillis() - start_time);
+		sb.append(",\"graph_size\":").append(tr.getGraph().size());
+		sb.append(",\"phrases\":[");
+
+		for (int i = 0; i < phrases.size(); i++) {
+		    if (i > 0) {
+			sb.append(',');
+		    }
+
+		    phrases.get(i).renderJson(sb);
+		}
+
+		sb.append("]}");
+		status = 200;
+		response = sb;
+	    }
+	    catch (IllegalArgumentException e) {
+		status = 400;
+		response = renderError(status, e.getMessage());
+	    }
+	    catch (RequestTooLargeException e) {
+		status = 413;
+		response = renderError(status, e.getMessage());
+	    }
+	    catch (TextRankTimeoutException e) {
+		status = 503;
+		response = renderError(status, e.getMessage());
+	    }
+	    catch (Exception e) {
+		LOG.warn("request failed", e);
+		response = renderError(status, String.valueOf(e.getMessage()));
+	    }
+	    catch (StackOverflowError e) {
+		LOG.warn("request failed", e);
+		response = renderError(status, "stack overflow");
+	    }
+	    finally {
+		// always answer, even when some other Error, e.g., out
+		// of memory, propagates to the pool
+
+		send(exchange, status, (response != null) ? response : renderError(status, "internal error"));
+	    }
+	}
+    }
+
+
+    /**
+     * Report a snapshot of the metrics.
+     */
+
+    protected class
+	MetricsHandler
+	implements HttpHandler
+    {
+	public void
+	    handle (final HttpExchange exchange)
+	    throws IOException
+	{
+	    final StringBuilder sb = new StringBuilder("{");
+
+	    for (Map.Entry<String, Long> entry : metrics.snapshot().entrySet()) {
+		if (sb.length() > 1) {
+		    sb.append(',');
+		}
+
+		Json.quote(sb, entry.getKey()).append(':').append(entry.getValue());
+	    }
+
+	    send(exchange, 200, sb.append('}'));
+	}
+    }
+
+
+    /**
+     * Report the pool and queue depth, e.g., for load balancers.
+     */
+
+    protected class
+	HealthHandler
+	implements HttpHandler
+    {
+	public void
+	    handle (final HttpExchange exchange)
+	    throws IOException
+	{
+	    final StringBuilder sb = new StringBuilder();
+
+	    sb.append("{\"status\":\"ok\"");
+	    sb.append(",\"threads\":").append(pool.getMaximumPoolSize());
+	    sb.append(",\"active\":").append(pool.getActiveCount());
+	    sb.append(",\"queued\":").append(pool.getQueue().size());
+	    sb.append(",\"queue_capacity\":").append(pool.getQueue().size() + pool.getQueue().remainingCapacity());
+	    sb.append('}');
+
+	    send(exchange, 200, sb);
+	}
+    }
+
+
+    /**
+     * Request body exceeded MAX_REQUEST_BYTES.
+     */
+
+    protected static class
+	RequestTooLargeException
+	extends IOException
+    {
+	public
+	    RequestTooLargeException (final String message)
+	{
+	    super(message);
+	}
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // I/O helpers
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Read the request body as UTF-8, up to MAX_REQUEST_BYTES.
+     */
+
+    protected static String
+	readBody (final HttpExchange exchange)
+	throws IOException
+    {
+	final InputStream in = exchange.getRequestBody();
+	final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	final byte[] buffer = new byte[8192];
+	int len = 0;
+
+	try {
+	    while ((len = in.read(buffer)) != -1) {
+		out.write(buffer, 0, len);
+
+		if (out.size() > MAX_REQUEST_BYTES) {
+		    throw new RequestTooLargeException("request exceeds " + MAX_REQUEST_BYTES + " bytes");
+		}
+	    }
+	}
+	finally {
+	    in.close();
+	}
+
+	return out.toString("UTF-8");
+    }
+
+
+    /**
+     * Send a JSON response and close the exchange.
+     */
+
+    protected static void
+	send (final HttpExchange exchange, final int status, final CharSequence json)
+    {
+	try {
+	    final byte[] body = json.toString().getBytes("UTF-8");
+
+	    exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+	    exchange.sendResponseHeaders(status, body.length);
+
+	    final OutputStream out = exchange.getResponseBody();
+
+	    try {
+		out.write(body);
+	    }
+	    finally {
+		out.close();
+	    }
+	}
+	catch (IOException e) {
+	    LOG.debug("client went away", e);
+	}
+	finally {
+	    exchange.close();
+	}
+    }
+
+
+    /**
+     * Send an error as a JSON object.
+     */
+
+    protected static void
+	sendError (final HttpExchange exchange, final int status, final String message)
+    {
+	send(exchange, status, renderError(status, message));
+    }
+
+
+    /**
+     * Render an error as a JSON object.
+     */
+
+    protected static StringBuilder
+	renderError (final int status, final String message)
+    {
+	final StringBuilder sb = new StringBuilder();
+
+	sb.append("{\"status\":").append(status).append(",\"error\":");
+	Json.quote(sb, message);
+
+	return sb.append('}');
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // command line interface
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Main entry point, which serves on localhost until killed.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+	final int port = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_PORT;
+	final int num_threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+	final int queue_size = (args.length > 5) ? Integer.parseInt(args[5]) : (num_threads * QUEUE_PER_THREAD);
+	final long timeout = (args.length > 6) ? Long.parseLong(args[6]) : 0L;
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final LanguageModel lang = LanguageModel.buildLanguage(res_path, lang_code);
+	final boolean use_wordnet = "en".equals(lang_code);
+
+	if (use_wordnet) {
+	    WordNet.buildDictionary(res_path, lang_code);
+	}
+
+	final TextRankServer server =
+	    new TextRankServer(lang, use_wordnet, new InetSocketAddress(InetAddress.getByName("localhost"), port), num_threads, queue_size);
+
+	server.setTimeout(timeout);
+
+	Runtime.getRuntime().addShutdownHook(new Thread() {
+		public void run () {
+		    try {
+			server.stop(1);
+		    }
+		    catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		    }
+		}
+	    });
+
+	server.start();
+    }
+}
@@ -0,0 +1,370 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import gnu.trove.THashMap;
+
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.log4j.PropertyConfigurator;
+
+
+/**
+ * Streaming variant of TextRank, which consumes text in chunks (e.g.,
+ * from a Reader or a live feed), detects sentences incrementally and
+ * grows the graph as they arrive. Calling it ranks the key phrases
+ * for the sentences seen so far, at any point, warm-starting from
+ * the keyword ranks of the previous call. Only the raw text is
+ * bounded, to the current partial sentence and at most MAX_PENDING
+ * chars: the sentence cache, graph and n-grams keep growing with the
+ * stream, and so does the cost of each call, so start a new stream
+ * for each window of an unbounded feed.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    TextRankStream
+    extends TextRank
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(TextRankStream.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int CHUNK_SIZE = 8192;
+    public final static int MAX_PENDING = 8 * CHUNK_SIZE;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected StringBuilder pending = new StringBuilder();
+    protected Node[] base_nodes = null;
+    protected double[] base_ranks = null;
+
+
+    /**
+     * Constructor, sharing a language model which has already been
+     * loaded.
+     */
+
+    public
+	TextRankStream (final LanguageModel lang, final boolean use_wordnet)
+	throws Exception
+    {
+	super(lang);
+	prepCall("", use_wordnet);
+    }
+
+
+    /**
+     * Append a chunk of text, mapping each sentence completed so
+     * far into the graph. The last sentence detected stays pending,
+     * since the next chunk may continue it.
+     *
+     * Text without any sentence boundary would get rescanned on every
+     * chunk, so past MAX_PENDING chars it's mapped as a sentence up to
+     * the last whitespace.
+     */
+
+    public void
+	append (final CharSequence chunk)
+	throws Exception
+    {
+	pending.append(chunk);
+	text_length += chunk.length();
+
+	lang.beginUse();
+
+	try {
+	    mapPending();
+	}
+	finally {
+	    lang.endUse();
+	}
+    }
+
+
+    /**
+     * Map the sentences completed in the pending text, keeping the
+     * last one pending.
+     */
+
+    protected void
+	mapPending ()
+	throws Exception
+    {
+	final String[] sent_list = lang.splitParagraph(pending.toString());
+
+	if (sent_list.length > 1) {
+	    final String last = sent_list[sent_list.length - 1];
+	    final int tail = pending.lastIndexOf(last);
+
+	    mapStream(Arrays.copyOf(sent_list, sent_list.length - 1));
+
+	    if (tail >= 0) {
+		pending.delete(0, tail);
+	    }
+	    else {
+		pending = new StringBuilder(last);
+	    }
+	}
+	else if (pending.length() > MAX_PENDING) {
+	    int cut = pending.length();
+
+	    while ((cut > 0) && !Character.isWhitespace(pending.charAt(cut - 1))) {
+		cut--;
+	    }
+
+	    if (cut == 0) {
+		cut = pending.length();
+	    }
+
+	    mapStream(new String[] { pending.substring(0, cut) });
+	    pending.delete(0, cut);
+	}
+    }
+
+
+    /**
+     * Append all of the text from a Reader, chunk by chunk; the
+     * caller closes it.
+     */
+
+    public void
+	append (final Reader reader)
+	throws Exception
+    {
+	final char[] buffer = new char[CHUNK_SIZE];
+	int len = 0;
+
+	while ((len = reader.read(buffer)) != -1) {
+	    append(new String(buffer, 0, len));
+	}
+    }
+
+
+    /**
+     * Map the pending text into the graph as the last sentence(s),
+     * e.g., at the end of the stream.
+     */
+
+    public void
+	flush ()
+	throws Exception
+    {
+	if (pending.toString().trim().length() > 0) {
+	    lang.beginUse();
+
+	    try {
+		mapStream(lang.splitParagraph(pending.toString()));
+	    }
+	    finally {
+		lang.endUse();
+	    }
+	}
+
+	pending.setLength(0);
+    }
+
+
+    /**
+     * Map completed sentences into the graph, recording the metrics
+     * for this chunk.
+     */
+
+    protected void
+	mapStream (final String[] sent_list)
+	throws Exception
+    {
+	final int hits = cache.hits;
+	final int misses = cache.size();
+
+	initTime();
+	startDeadline();
+
+	mapSentences(sent_list);
+
+	markTime(MetricsRegistry.CONSTRUCT_GRAPH);
+
+	metrics.increment(MetricsRegistry.SENTENCE_CACHE_HITS, cache.hits - hits);
+	metrics.increment(MetricsRegistry.SENTENCE_CACHE_MISSES, cache.size() - misses);
+    }
+
+
+    /**
+     * Rank the key phrases for the sentences mapped so far, without
+     * the pending text.
+     */
+
+    protected Collection<MetricVector>
+	rankText ()
+	throws Exception
+    {
+	restoreGraph();
+	startDeadline();
+
+	metrics.record(MetricsRegistry.GRAPH_SIZE, graph.size());
+	metric_space = new THashMap<NGram, MetricVector>();
+
+	rankKeyWords();
+	saveRanks();
+
+	return rankPhrases();
+    }
+
+
+    /**
+     * Remember the keyword ranks, to warm-start the next call.
+     */
+
+    protected void
+	saveRanks ()
+    {
+	base_nodes = graph.values().toArray(new Node[graph.size()]);
+	base_ranks = new double[base_nodes.length];
+
+	for (int i = 0; i < base_nodes.length; i++) {
+	    base_ranks[i] = base_nodes[i].rank;
+	}
+    }
+
+
+    /**
+     * Strip the n-gram and synset nodes which the previous call
+     * added to the graph, clear the marks from sorting, and restore
+     * the keyword ranks from before they were re-ranked.
+     */
+
+    protected void
+	restoreGraph ()
+    {
+	final Iterator<Node> iter = graph.values().iterator();
+
+	while (iter.hasNext()) {
+	    if (!(iter.next().value instanceof KeyWord)) {
+		iter.remove();
+	    }
+	}
+
+	for (Node n : graph.values()) {
+	    final Iterator<Node> edge_iter = n.edges.iterator();
+
+	    while (edge_iter.hasNext()) {
+		if (!(edge_iter.next().value instanceof KeyWord)) {
+		    edge_iter.remove();
+		}
+	    }
+
+	    n.marked = false;
+	}
+
+	if (base_nodes != null) {
+	    for (int i = 0; i < base_nodes.length; i++) {
+		base_nodes[i].rank = base_ranks[i];
+	    }
+	}
+    }
+
+
+    //////////////////////////////////////////////////////////////////////
+    // command line interface
+    //////////////////////////////////////////////////////////////////////
+
+    /**
+     * Main entry point, which streams a file and reports the key
+     * phrases so far after every N chunks.
+     */
+
+    public static void
+	main (final String[] args)
+	throws Exception
+    {
+	final String log4j_conf = args[0];
+	final String res_path = args[1];
+	final String lang_code = args[2];
+	final String data_file = args[3];
+	final int report_chunks = (args.length > 4) ? Integer.parseInt(args[4]) : 16;
+
+	PropertyConfigurator.configure(log4j_conf);
+
+	final LanguageModel lang = LanguageModel.buildLanguage(res_path, lang_code);
+	final boolean use_wordnet = "en".equals(lang_code);
+
+	if (use_wordnet) {
+	    WordNet.buildDictionary(res_path, lang_code);
+	}
+
+	final TextRankStream tr = new TextRankStream(lang, use_wordnet);
+	final Reader reader = new InputStreamReader(new FileInputStream(data_file), "UTF-8");
+
+	try {
+	    final char[] buffer = new char[CHUNK_SIZE];
+	    int len = 0;
+	    int chunks = 0;
+
+	    while ((len = reader.read(buffer)) != -1) {
+		tr.append(new String(buffer, 0, len));
+
+		if ((++chunks % report_chunks) == 0) {
+		    tr.call();
+		    LOG.info("after " + tr.text_length + " chars:\n" + tr);
+		}
+	    }
+	}
+	finally {
+	    reader.close();
+	}
+
+	tr.flush();
+	tr.call();
+
+	LOG.info("\n" + tr);
+    }
+}
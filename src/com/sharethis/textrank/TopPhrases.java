@@ -0,0 +1,286 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package com.sharethis.textrank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Keeps the K best key phrases offered, in a bounded heap of
+ * primitive arrays, so that a MetricVector only gets created for
+ * each phrase which makes the cut. Ordered the same as MetricVector:
+ * by metric, then by text. Phrases below the minimum metric, or
+ * with an undefined one, never qualify. The arrays grow with the
+ * phrases offered, up to K, so a large K costs nothing until it gets
+ * used.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    TopPhrases
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(TopPhrases.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static int INITIAL_CAPACITY = 16;
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final int k;
+    protected final double min_metric;
+    protected int size = 0;
+
+    protected NGram[] gram_list;
+    protected double[] metric;
+    protected double[] link_rank;
+    protected double[] count_rank;
+    protected double[] synset_rank;
+
+
+    /**
+     * Constructor.
+     */
+
+    public
+	TopPhrases (final int k, final double min_metric)
+    {
+	this.k = Math.max(0, k);
+	this.min_metric = min_metric;
+
+	final int capacity = Math.min(this.k, INITIAL_CAPACITY);
+
+	gram_list = new NGram[capacity];
+	metric = new double[capacity];
+	link_rank = new double[capacity];
+	count_rank = new double[capacity];
+	synset_rank = new double[capacity];
+    }
+
+
+    /**
+     * Offer a candidate phrase, keeping it only if it qualifies and
+     * ranks among the best K so far.
+     */
+
+    public void
+	offer (final NGram gram, final double link, final double count, final double synset)
+    {
+	final double m = MetricVector.calcMetric(link, count, synset);
+
+	if (!(m >= min_metric)) {
+	    // also rejects NaN
+	    return;
+	}
+	else if (size < k) {
+	    ensureCapacity(size + 1);
+	    set(size, gram, m, link, count, synset);
+	    siftUp(size++);
+	}
+	else if ((k > 0) && (compare(m, gram.text, metric[0], gram_list[0].text) < 0)) {
+	    // better than the worst one kept, which is at the root
+
+	    set(0, gram, m, link, count, synset);
+	    siftDown(0);
+	}
+    }
+
+
+    /**
+     * Grow the arrays to hold at least the given number of phrases,
+     * doubling up to K.
+     */
+
+    protected void
+	ensureCapacity (final int capacity)
+    {
+	if (capacity > gram_list.length) {
+	    final int n = (int) Math.min((long) k, Math.max(capacity, 2L * gram_list.length));
+
+	    gram_list = Arrays.copyOf(gram_list, n);
+	    metric = Arrays.copyOf(metric, n);
+	    link_rank = Arrays.copyOf(link_rank, n);
+	    count_rank = Arrays.copyOf(count_rank, n);
+	    synset_rank = Arrays.copyOf(synset_rank, n);
+	}
+    }
+
+
+    /**
+     * Create the MetricVectors for the phrases kept, best first.
+     */
+
+    public List<MetricVector>
+	toList ()
+    {
+	final List<MetricVector> result = new ArrayList<MetricVector>(size);
+
+	for (int i = 0; i < size; i++) {
+	    result.add(new MetricVector(gram_list[i], link_rank[i], count_rank[i], synset_rank[i]));
+	}
+
+	Collections.sort(result);
+
+	return result;
+    }
+
+
+    /**
+     * Compare two phrases the same way as MetricVector, where the
+     * better one comes first.
+     */
+
+    protected static int
+	compare (final double m1, final String text1, final double m2, final String text2)
+    {
+	if (m1 > m2) {
+	    return -1;
+	}
+	else if (m1 < m2) {
+	    return 1;
+	}
+	else {
+	    return text1.compareTo(text2);
+	}
+    }
+
+
+    /**
+     * Compare two entries in the heap.
+     */
+
+    protected int
+	compare (final int i, final int j)
+    {
+	return compare(metric[i], gram_list[i].text, metric[j], gram_list[j].text);
+    }
+
+
+    /**
+     * Store a phrase at one position in the heap.
+     */
+
+    protected void
+	set (final int i, final NGram gram, final double m, final double link, final double count, final double synset)
+    {
+	gram_list[i] = gram;
+	metric[i] = m;
+	link_rank[i] = link;
+	count_rank[i] = count;
+	synset_rank[i] = synset;
+    }
+
+
+    /**
+     * Swap two positions in the heap.
+     */
+
+    protected void
+	swap (final int i, final int j)
+    {
+	final NGram gram = gram_list[i];
+	final double m = metric[i];
+	final double link = link_rank[i];
+	final double count = count_rank[i];
+	final double synset = synset_rank[i];
+
+	set(i, gram_list[j], metric[j], link_rank[j], count_rank[j], synset_rank[j]);
+	set(j, gram, m, link, count, synset);
+    }
+
+
+    /**
+     * Restore the heap upwards, keeping the worst phrase at the root.
+     */
+
+    protected void
+	siftUp (int i)
+    {
+	while (i > 0) {
+	    final int parent = (i - 1) >>> 1;
+
+	    if (compare(parent, i) >= 0) {
+		break;
+	    }
+
+	    swap(parent, i);
+	    i = parent;
+	}
+    }
+
+
+    /**
+     * Restore the heap downwards.
+     */
+
+    protected void
+	siftDown (int i)
+    {
+	while (true) {
+	    final int left = (2 * i) + 1;
+	    final int right = left + 1;
+	    int worst = i;
+
+	    if ((left < size) && (compare(left, worst) > 0)) {
+		worst = left;
+	    }
+
+	    if ((right < size) && (compare(right, worst) > 0)) {
+		worst = right;
+	    }
+
+	    if (worst == i) {
+		break;
+	    }
+
+	    swap(i, worst);
+	    i = worst;
+	}
+    }
+}
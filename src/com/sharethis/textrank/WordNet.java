@@ -36,6 +36,9 @@ import net.didion.jwnl.JWNL;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.Pointer;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
 import net.didion.jwnl.dictionary.Dictionary;
 import net.didion.jwnl.dictionary.MorphologicalProcessor;
 
@@ -73,22 +76,60 @@ public class
         LogFactory.getLog(WordNet.class.getName());
 
 
+    /**
+     * Public definitions.
+     */
+
+    public final static String BACKEND_PROPERTY = "wordnet.backend";
+    public final static String BACKEND_FILE = "file";
+    public final static String BACKEND_MEMORY = "memory";
+    public final static int SYNSET_CACHE_SIZE = 50000;
+
+
     /**
      * Protected members.
      */
 
     protected static Dictionary dictionary = null;
     protected static MorphologicalProcessor mp = null;
+    protected static WordNetIndex index = null;
+
+    protected final static LruCache<String, Synset> synset_cache =
+	new LruCache<String, Synset>(SYNSET_CACHE_SIZE);
 
 
     /**
-     * Singleton
+     * Singleton, using the backend named by the "wordnet.backend"
+     * system property, which defaults to the file-backed JWNL
+     * dictionary.
      */
 
     public static void
 	buildDictionary (final String res_path, final String lang_code)
 	throws Exception
     {
+	buildDictionary(res_path, lang_code, System.getProperty(BACKEND_PROPERTY, BACKEND_FILE));
+    }
+
+
+    /**
+     * Singleton, using the given backend: either the file-backed
+     * JWNL dictionary, or an in-memory index loaded from the same
+     * WordNet database files.
+     */
+
+    public static synchronized void
+	buildDictionary (final String res_path, final String lang_code, final String backend)
+	throws Exception
+    {
+	if (BACKEND_MEMORY.equals(backend)) {
+	    if (index == null) {
+		index = WordNetIndex.load(new File(res_path + "/" + lang_code, "wn"));
+	    }
+
+	    return;
+	}
+
 	// initialize the JWNL properties
 
 	if (!JWNL.isInitialized()) {
@@ -163,6 +204,18 @@ public class
     }
 
 
+    /**
+     * Test whether lookups use the in-memory index, which never
+     * blocks on disk I/O.
+     */
+
+    public static boolean
+	isMemoryBacked ()
+    {
+	return index != null;
+    }
+
+
     /**
      * Lookup the first lemma found.
      */
@@ -171,6 +224,120 @@ public class
 	getLemma (final POS pos, final String derivation)
 	throws JWNLException
     {
-        return mp.lookupBaseForm(pos, derivation);
+	if (index != null) {
+	    final String lemma = index.lookupBaseForm(pos, derivation);
+
+	    return (lemma == null) ? null : new IndexWord(lemma, pos, index.getSenses(pos, lemma));
+	}
+
+	// JWNL shares its file handles and caches across threads
+
+	synchronized (WordNet.class) {
+	    return mp.lookupBaseForm(pos, derivation);
+	}
+    }
+
+
+    /**
+     * Lookup the synsets which the given synset points to, for the
+     * given type of pointer.
+     */
+
+    public static long[]
+	getPointerTargets (final POS pos, final long offset, final PointerType type)
+	throws JWNLException
+    {
+	if (index != null) {
+	    if (type == PointerType.HYPERNYM) {
+		return index.getHypernyms(pos, offset);
+	    }
+	    else if (type == PointerType.HYPONYM) {
+		return index.getHyponyms(pos, offset);
+	    }
+
+	    return WordNetIndex.NO_OFFSETS;
+	}
+
+	final Synset synset = getSynset(pos, offset);
+	long[] targets = null;
+
+	synchronized (WordNet.class) {
+	    final Pointer[] pointers = synset.getPointers(type);
+	    targets = new long[pointers.length];
+
+	    // hypernyms get expanded in turn, so keep their resolved
+	    // synsets for the next hop instead of seeking to them again
+
+	    for (int i = 0; i < pointers.length; i++) {
+		if (type == PointerType.HYPERNYM) {
+		    final Synset target = pointers[i].getTargetSynset();
+
+		    targets[i] = target.getOffset();
+		    synset_cache.put(getSynsetKey(target.getPOS(), targets[i]), target);
+		}
+		else {
+		    targets[i] = pointers[i].getTargetOffset();
+		}
+	    }
+	}
+
+	return targets;
+    }
+
+
+    /**
+     * Lookup a synset in the file-backed dictionary, reusing the
+     * ones already resolved.
+     */
+
+    protected static Synset
+	getSynset (final POS pos, final long offset)
+	throws JWNLException
+    {
+	final String key = getSynsetKey(pos, offset);
+	Synset synset = synset_cache.get(key);
+
+	if (synset == null) {
+	    synchronized (WordNet.class) {
+		synset = dictionary.getSynsetAt(pos, offset);
+	    }
+
+	    if (synset != null) {
+		synset_cache.put(key, synset);
+	    }
+	}
+
+	return synset;
+    }
+
+
+    /**
+     * Key a synset by its part of speech and offset.
+     */
+
+    protected static String
+	getSynsetKey (final POS pos, final long offset)
+    {
+	return pos.getKey() + '\t' + offset;
+    }
+
+
+    /**
+     * Describe the given synset as text.
+     */
+
+    public static String
+	describeSynset (final POS pos, final long offset)
+	throws JWNLException
+    {
+	if (index != null) {
+	    return index.describe(pos, offset);
+	}
+
+	final Synset synset = getSynset(pos, offset);
+
+	synchronized (WordNet.class) {
+	    return synset.toString();
+	}
     }
 }
@@ -0,0 +1,622 @@
+/*
+Copyright (c) 2009, ShareThis, Inc. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are
+met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+
+    * Redistributions in binary form must reproduce the above
+      copyright notice, this list of conditions and the following
+      disclaimer in the documentation and/or other materials provided
+      with the distribution.
+
+    * Neither the name of the ShareThis, Inc., nor the names of its
+      contributors may be used to endorse or promote products derived
+      from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+
+package com.sharethis.textrank;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.didion.jwnl.data.POS;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * An in-memory copy of the parts of the WordNet database used here:
+ * lemmas mapped to synset offsets, morphological exceptions, and
+ * synsets with their HYPERNYM and HYPONYM pointers. Loaded once from
+ * the index/data/exc files, then read-only, so lookups never block
+ * on disk I/O and are safe across threads.
+ *
+ * @author paco@sharethis.com
+ */
+
+public class
+    WordNetIndex
+{
+    // logging
+
+    private final static Log LOG =
+	LogFactory.getLog(WordNetIndex.class.getName());
+
+
+    /**
+     * Public definitions.
+     */
+
+    public final static String HYPERNYM_KEY = "@";
+    public final static String HYPONYM_KEY = "~";
+
+    public final static String[][] NOUN_SUFFIXES = {
+	{ "s", "" }, { "ses", "s" }, { "xes", "x" }, { "zes", "z" },
+	{ "ches", "ch" }, { "shes", "sh" }, { "men", "man" }, { "ies", "y" }
+    };
+
+    public final static String[][] ADJECTIVE_SUFFIXES = {
+	{ "er", "" }, { "est", "" }, { "er", "e" }, { "est", "e" }
+    };
+
+    public final static String[] PHRASE_DELIMITERS = { "_", "-" };
+
+    public final static long[] NO_OFFSETS = new long[0];
+
+
+    /**
+     * Protected members.
+     */
+
+    protected final Map<POS, Part> parts = new HashMap<POS, Part>();
+
+
+    /**
+     * The lexicon for one part of speech.
+     */
+
+    protected static class
+	Part
+    {
+	public final Map<String, long[]> lemmas = new HashMap<String, long[]>();
+	public final Map<String, String[]> exceptions = new HashMap<String, String[]>();
+
+	public long[] offsets = NO_OFFSETS;
+	public String[] words = null;
+	public long[][] hypernyms = null;
+	public long[][] hyponyms = null;
+	public String[][] suffixes = null;
+
+
+	/**
+	 * Locate a synset by its offset, or return -1.
+	 */
+
+	public int
+	    find (final long offset)
+	{
+	    final int i = Arrays.binarySearch(offsets, offset);
+
+	    return (i < 0) ? -1 : i;
+	}
+    }
+
+
+    /**
+     * Factory method, loads the noun and adjective lexicons from the
+     * given WordNet database directory.
+     */
+
+    public static WordNetIndex
+	load (final File wn_dir)
+	throws Exception
+    {
+	final long start_time = System.currentTimeMillis();
+	final WordNetIndex index = new WordNetIndex();
+
+	index.loadPart(wn_dir, POS.NOUN, "noun", NOUN_SUFFIXES);
+	index.loadPart(wn_dir, POS.ADJECTIVE, "adj", ADJECTIVE_SUFFIXES);
+
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("loaded WordNet from " + wn_dir + " in " + (System.currentTimeMillis() - start_time) + " ms");
+	}
+
+	return index;
+    }
+
+
+    /**
+     * Load the index, data, and exception files for one part of
+     * speech.
+     */
+
+    protected void
+	loadPart (final File wn_dir, final POS pos, final String suffix, final String[][] suffixes)
+	throws Exception
+    {
+	final Part part = new Part();
+	part.suffixes = suffixes;
+	parts.put(pos, part);
+
+	final File index_file = new File(wn_dir, "index." + suffix);
+	final File data_file = new File(wn_dir, "data." + suffix);
+	final File exc_file = new File(wn_dir, suffix + ".exc");
+
+	if (!index_file.exists() || !data_file.exists()) {
+	    LOG.warn("missing WordNet files for " + pos.getLabel() + " in " + wn_dir);
+	    return;
+	}
+
+	// lemma -> synset offsets, in sense order
+
+	for (String line : readLines(index_file)) {
+	    final String[] field = line.split(" ");
+	    final int synset_cnt = Integer.parseInt(field[2]);
+	    final long[] offsets = new long[synset_cnt];
+
+	    for (int i = 0; i < synset_cnt; i++) {
+		offsets[i] = Long.parseLong(field[field.length - synset_cnt + i]);
+	    }
+
+	    part.lemmas.put(field[0], offsets);
+	}
+
+	// synsets, with their words and the pointers we traverse
+
+	final ArrayList<String> data_lines = readLines(data_file);
+	final int n = data_lines.size();
+
+	part.offsets = new long[n];
+	part.words = new String[n];
+	part.hypernyms = new long[n][];
+	part.hyponyms = new long[n][];
+
+	for (int i = 0; i < n; i++) {
+	    final String line = data_lines.get(i);
+	    final int gloss_at = line.indexOf(" | ");
+	    final String[] field = ((gloss_at < 0) ? line : line.substring(0, gloss_at)).split(" ");
+
+	    part.offsets[i] = Long.parseLong(field[0]);
+
+	    final int w_cnt = Integer.parseInt(field[3], 16);
+	    final StringBuilder sb = new StringBuilder();
+	    int j = 4;
+
+	    for (int w = 0; w < w_cnt; w++, j += 2) {
+		if (w > 0) {
+		    sb.append(", ");
+		}
+
+		sb.append(trimMarker(field[j]));
+	    }
+
+	    part.words[i] = sb.toString();
+
+	    final int p_cnt = Integer.parseInt(field[j++]);
+	    final ArrayList<Long> hypernyms = new ArrayList<Long>();
+	    final ArrayList<Long> hyponyms = new ArrayList<Long>();
+
+	    for (int p = 0; p < p_cnt; p++, j += 4) {
+		if (HYPERNYM_KEY.equals(field[j])) {
+		    hypernyms.add(Long.parseLong(field[j + 1]));
+		}
+		else if (HYPONYM_KEY.equals(field[j])) {
+		    hyponyms.add(Long.parseLong(field[j + 1]));
+		}
+	    }
+
+	    part.hypernyms[i] = toArray(hypernyms);
+	    part.hyponyms[i] = toArray(hyponyms);
+	}
+
+	// morphological exceptions
+
+	if (exc_file.exists()) {
+	    for (String line : readLines(exc_file)) {
+		final String[] field = line.split(" ");
+
+		part.exceptions.put(field[0], Arrays.copyOfRange(field, 1, field.length));
+	    }
+	}
+
+	if (LOG.isInfoEnabled()) {
+	    LOG.info("WordNet " + pos.getLabel() + ": " + part.lemmas.size() + " lemmas, " + n + " synsets");
+	}
+    }
+
+
+    /**
+     * Read the non-license lines of a WordNet database file.
+     */
+
+    protected static ArrayList<String>
+	readLines (final File file)
+	throws Exception
+    {
+	final ArrayList<String> lines = new ArrayList<String>();
+	final BufferedReader reader =
+	    new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+
+	try {
+	    String line = null;
+
+	    while ((line = reader.readLine()) != null) {
+		if (!line.startsWith("  ") && (line.trim().length() > 0)) {
+		    lines.add(line.trim());
+		}
+	    }
+	}
+	finally {
+	    reader.close();
+	}
+
+	return lines;
+    }
+
+
+    /**
+     * Strip an adjective position marker, e.g., "(a)" or "(ip)".
+     */
+
+    protected static String
+	trimMarker (final String word)
+    {
+	final int paren = word.indexOf('(');
+
+	return (paren > 0) ? word.substring(0, paren) : word;
+    }
+
+
+    /**
+     * Convert a list of offsets to a primitive array.
+     */
+
+    protected static long[]
+	toArray (final ArrayList<Long> list)
+    {
+	if (list.isEmpty()) {
+	    return NO_OFFSETS;
+	}
+
+	final long[] array = new long[list.size()];
+
+	for (int i = 0; i < array.length; i++) {
+	    array[i] = list.get(i);
+	}
+
+	return array;
+    }
+
+
+    /**
+     * Find the base form of a derivation, using the same sequence of
+     * operations as the configured JWNL morphological processor:
+     * exceptions, detached suffixes, then tokenizing into words which
+     * get recombined as a phrase. As in JWNL, the first operation to
+     * produce any form decides, even when that form is not a lemma.
+     */
+
+    public String
+	lookupBaseForm (final POS pos, final String derivation)
+    {
+	final Part part = parts.get(pos);
+	final String word = derivation.trim().toLowerCase().replace(' ', '_');
+
+	if ((part == null) || (word.length() == 0)) {
+	    return null;
+	}
+
+	final ArrayList<String> forms = new ArrayList<String>();
+
+	if (addExceptions(part, word, forms) || detachSuffixes(part, word, forms)) {
+	    final String base = forms.get(0);
+
+	    return part.lemmas.containsKey(base) ? base : null;
+	}
+
+	return lookupPhrase(part, word);
+    }
+
+
+    /**
+     * Add the base forms listed as exceptions for a word, whether or
+     * not they are in the lexicon.
+     */
+
+    protected static boolean
+	addExceptions (final Part part, final String word, final List<String> forms)
+    {
+	final String[] bases = part.exceptions.get(word);
+
+	if (bases == null) {
+	    return false;
+	}
+
+	for (String base : bases) {
+	    addForm(forms, base);
+	}
+
+	return true;
+    }
+
+
+    /**
+     * Add the stems left by each matching suffix rule which are in
+     * the lexicon, along with the exceptions for each stem.
+     */
+
+    protected static boolean
+	detachSuffixes (final Part part, final String word, final List<String> forms)
+    {
+	boolean found = false;
+
+	for (String[] rule : part.suffixes) {
+	    if (word.endsWith(rule[0])) {
+		final String stem = word.substring(0, word.length() - rule[0].length()) + rule[1];
+
+		if (part.lemmas.containsKey(stem)) {
+		    addForm(forms, stem);
+		    found = true;
+		}
+
+		if (addExceptions(part, stem, forms)) {
+		    found = true;
+		}
+	    }
+	}
+
+	return found;
+    }
+
+
+    /**
+     * Add a form unless it is already present.
+     */
+
+    protected static void
+	addForm (final List<String> forms, final String form)
+    {
+	if (!forms.contains(form)) {
+	    forms.add(form);
+	}
+    }
+
+
+    /**
+     * Split a derivation into words, then try each span of words,
+     * longest first from the left, as a phrase in the lexicon.
+     */
+
+    protected static String
+	lookupPhrase (final Part part, final String word)
+    {
+	final String[] tokens = splitTokens(word);
+	final ArrayList<List<String>> token_forms = new ArrayList<List<String>>(tokens.length);
+
+	for (String token : tokens) {
+	    final ArrayList<String> forms = new ArrayList<String>();
+
+	    forms.add(token);
+	    addExceptions(part, token, forms);
+	    detachSuffixes(part, token, forms);
+	    token_forms.add(forms);
+	}
+
+	for (int i = 0; i < tokens.length; i++) {
+	    for (int j = tokens.length - 1; j >= i; j--) {
+		final String lemma = lookupSpan(part, token_forms, i, j);
+
+		if (lemma != null) {
+		    return lemma;
+		}
+	    }
+	}
+
+	return null;
+    }
+
+
+    /**
+     * Try every combination of the forms of the words in a span,
+     * with the last word varying fastest.
+     */
+
+    protected static String
+	lookupSpan (final Part part, final List<List<String>> token_forms, final int first, final int last)
+    {
+	final int n = last - first + 1;
+	final int[] choice = new int[n];
+	final String[] words = new String[n];
+
+	while (true) {
+	    for (int k = 0; k < n; k++) {
+		words[k] = token_forms.get(first + k).get(choice[k]);
+	    }
+
+	    for (String delimiter : PHRASE_DELIMITERS) {
+		final String lemma = lookupJoined(part, words, delimiter);
+
+		if (lemma != null) {
+		    return lemma;
+		}
+	    }
+
+	    int k = n - 1;
+
+	    while ((k >= 0) && (choice[k] == token_forms.get(first + k).size() - 1)) {
+		choice[k--] = 0;
+	    }
+
+	    if (k < 0) {
+		return null;
+	    }
+
+	    choice[k]++;
+	}
+    }
+
+
+    /**
+     * Try the words joined by the delimiter, then with each pattern
+     * of gaps closed up, counting in binary with the last gap as the
+     * low bit.
+     */
+
+    protected static String
+	lookupJoined (final Part part, final String[] words, final String delimiter)
+    {
+	final boolean[] closed = new boolean[words.length - 1];
+	final StringBuilder sb = new StringBuilder();
+
+	while (true) {
+	    sb.setLength(0);
+	    sb.append(words[0]);
+
+	    for (int k = 1; k < words.length; k++) {
+		if (!closed[k - 1]) {
+		    sb.append(delimiter);
+		}
+
+		sb.append(words[k]);
+	    }
+
+	    final String lemma = sb.toString();
+
+	    if (part.lemmas.containsKey(lemma)) {
+		return lemma;
+	    }
+
+	    int k = closed.length - 1;
+
+	    while ((k >= 0) && closed[k]) {
+		closed[k--] = false;
+	    }
+
+	    if (k < 0) {
+		return null;
+	    }
+
+	    closed[k] = true;
+	}
+    }
+
+
+    /**
+     * Split into the runs of lowercase letters and apostrophes, as
+     * the JWNL tokenizer does.
+     */
+
+    protected static String[]
+	splitTokens (final String word)
+    {
+	final ArrayList<String> tokens = new ArrayList<String>();
+	int start = -1;
+
+	for (int i = 0; i <= word.length(); i++) {
+	    final char c = (i < word.length()) ? word.charAt(i) : ' ';
+	    final boolean letter = ((c >= 'a') && (c <= 'z')) || (c == '\'');
+
+	    if (letter && (start < 0)) {
+		start = i;
+	    }
+	    else if (!letter && (start >= 0)) {
+		tokens.add(word.substring(start, i));
+		start = -1;
+	    }
+	}
+
+	return tokens.toArray(new String[tokens.size()]);
+    }
+
+
+    /**
+     * Return the synset offsets for a lemma, in sense order.
+     */
+
+    public long[]
+	getSenses (final POS pos, final String lemma)
+    {
+	final Part part = parts.get(pos);
+	final long[] offsets = (part == null) ? null : part.lemmas.get(lemma);
+
+	return (offsets == null) ? NO_OFFSETS : offsets;
+    }
+
+
+    /**
+     * Return the HYPERNYM targets of a synset.
+     */
+
+    public long[]
+	getHypernyms (final POS pos, final long offset)
+    {
+	final Part part = parts.get(pos);
+	final int i = (part == null) ? -1 : part.find(offset);
+
+	return (i < 0) ? NO_OFFSETS : part.hypernyms[i];
+    }
+
+
+    /**
+     * Return the HYPONYM targets of a synset.
+     */
+
+    public long[]
+	getHyponyms (final POS pos, final long offset)
+    {
+	final Part part = parts.get(pos);
+	final int i = (part == null) ? -1 : part.find(offset);
+
+	return (i < 0) ? NO_OFFSETS : part.hyponyms[i];
+    }
+
+
+    /**
+     * Describe a synset, in the same format JWNL uses but without
+     * the gloss, which is not kept in memory.
+     */
+
+    public String
+	describe (final POS pos, final long offset)
+    {
+	final Part part = parts.get(pos);
+	final int i = (part == null) ? -1 : part.find(offset);
+	final StringBuilder sb = new StringBuilder();
+
+	sb.append("[Synset: [Offset: ").append(offset).append("] [POS: ").append(pos.getLabel()).append("] Words: ");
+
+	if (i >= 0) {
+	    sb.append(part.words[i]);
+	}
+
+	sb.append(']');
+
+	return sb.toString();
+    }
+}